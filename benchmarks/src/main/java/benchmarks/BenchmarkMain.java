@@ -0,0 +1,29 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * Runs the benchmarks with the GC profiler always enabled, so every stage
+ * reports its allocation rate (gc.alloc.rate, gc.alloc.rate.norm) next to
+ * its ops/s
+ * -> accepts the usual JMH command line, e.g.
+ * java -jar benchmarks/target/benchmarks.jar StageBenchmark -p size=1024
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
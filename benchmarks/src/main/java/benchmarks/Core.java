@@ -0,0 +1,199 @@
+package benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * Bridge from the benchmarks to the core classes
+ * -> the core classes live in the default package, which cannot be imported
+ * from a named package (and JMH requires benchmarks to be in one), so every
+ * entry point is bound once to a method handle
+ * -> the handles are static final and called with invokeExact, so the JIT
+ * inlines them like direct calls
+ * -> core types are erased to Object in the handle signatures
+ */
+@SuppressWarnings("unchecked")
+final class Core {
+    private static final MethodHandle NEW_TABLE = constructor("NodeTable");
+    private static final MethodHandle NEW_SCANNER = constructor("QuadtreeScanner",
+            BufferedImage.class);
+    private static final MethodHandle BUILD_TREE = method("QuadtreeScanner", "buildTree",
+            "NodeTable", int.class);
+    private static final MethodHandle SCAN_WORDS = method("QuadtreeScanner", "process", int.class);
+    private static final MethodHandle NEW_LEGACY = constructor("FindWordsToBlack");
+    private static final MethodHandle LEGACY_WORDS = method("FindWordsToBlack", "process",
+            BufferedImage.class, int.class);
+    private static final MethodHandle BUILD_DFA = method("Compress", "buildDFA", List.class,
+            int.class);
+    private static final MethodHandle BUILD_TRANSITIONS = method("Compress", "buildTransitions",
+            "NodeTable", int.class, int.class);
+    private static final MethodHandle MAX_WORD_LENGTH = method("Compress", "maxWordLength",
+            int.class);
+    private static final MethodHandle DFA_FROM_TREE = method("QuadtreeDfa", "fromTree",
+            "NodeTable", int.class);
+    private static final MethodHandle TO_AUTOMATON = method("QuadtreeDfa", "toAutomaton");
+    private static final MethodHandle TO_DENSE_AUTOMATON = method("QuadtreeDfa",
+            "toDenseAutomaton");
+    private static final MethodHandle FIND_WORDS = method("Automaton", "findWords", int.class);
+    private static final MethodHandle FIND_WORDS_DENSE = method("DenseAutomaton", "findWords",
+            int.class);
+    private static final MethodHandle NEW_RENDERER = constructor("AutomatonRenderer",
+            "DenseAutomaton");
+    private static final MethodHandle RENDER = method("AutomatonRenderer", "render", int.class);
+
+    private Core() {
+    }
+
+    /** new NodeTable() */
+    static Object newTable() throws Throwable {
+        return (Object) NEW_TABLE.invokeExact();
+    }
+
+    /** new QuadtreeScanner(image) */
+    static Object newScanner(BufferedImage image) throws Throwable {
+        return (Object) NEW_SCANNER.invokeExact(image);
+    }
+
+    /** scanner.buildTree(table, maxWordLen) */
+    static int buildTree(Object scanner, Object table, int maxWordLen) throws Throwable {
+        return (int) BUILD_TREE.invokeExact(scanner, table, maxWordLen);
+    }
+
+    /** scanner.process(maxWordLen) */
+    static List<String> scanWords(Object scanner, int maxWordLen) throws Throwable {
+        return (List<String>) SCAN_WORDS.invokeExact(scanner, maxWordLen);
+    }
+
+    /** new FindWordsToBlack().process(image, maxWordLen) */
+    static List<String> legacyWords(BufferedImage image, int maxWordLen) throws Throwable {
+        Object legacy = (Object) NEW_LEGACY.invokeExact();
+        return (List<String>) LEGACY_WORDS.invokeExact(legacy, image, maxWordLen);
+    }
+
+    /** Compress.buildDFA(words, mode) */
+    static List<String> buildDFA(List<String> words, int mode) throws Throwable {
+        return (List<String>) BUILD_DFA.invokeExact(words, mode);
+    }
+
+    /** Compress.buildTransitions(table, root, multiResMode) */
+    static List<String> buildTransitions(Object table, int root, int multiResMode)
+            throws Throwable {
+        return (List<String>) BUILD_TRANSITIONS.invokeExact(table, root, multiResMode);
+    }
+
+    /** Compress.maxWordLength(width) */
+    static int maxWordLength(int width) throws Throwable {
+        return (int) MAX_WORD_LENGTH.invokeExact(width);
+    }
+
+    /** QuadtreeDfa.fromTree(table, root).toAutomaton() */
+    static Object toAutomaton(Object table, int root) throws Throwable {
+        Object dfa = (Object) DFA_FROM_TREE.invokeExact(table, root);
+        return (Object) TO_AUTOMATON.invokeExact(dfa);
+    }
+
+    /** QuadtreeDfa.fromTree(table, root).toDenseAutomaton() */
+    static Object toDenseAutomaton(Object table, int root) throws Throwable {
+        Object dfa = (Object) DFA_FROM_TREE.invokeExact(table, root);
+        return (Object) TO_DENSE_AUTOMATON.invokeExact(dfa);
+    }
+
+    /** automaton.findWords(wordLen) */
+    static List<String> findWords(Object automaton, int wordLen) throws Throwable {
+        return (List<String>) FIND_WORDS.invokeExact(automaton, wordLen);
+    }
+
+    /** denseAutomaton.findWords(wordLen) */
+    static List<String> findWordsDense(Object automaton, int wordLen) throws Throwable {
+        return (List<String>) FIND_WORDS_DENSE.invokeExact(automaton, wordLen);
+    }
+
+    /** new AutomatonRenderer(denseAutomaton).render(wordLen) */
+    static BufferedImage render(Object automaton, int wordLen) throws Throwable {
+        Object renderer = (Object) NEW_RENDERER.invokeExact(automaton);
+        return (BufferedImage) RENDER.invokeExact(renderer, wordLen);
+    }
+
+    /**
+     * Binds a constructor of a core class
+     *
+     * @param className -> name of the core class
+     * @param params    -> parameter types, as classes or core class names
+     * @return -> handle returning Object, taking Object for core types
+     */
+    private static MethodHandle constructor(String className, Object... params) {
+        try {
+            Constructor<?> c = load(className).getDeclaredConstructor(types(params));
+            return erase(MethodHandles.lookup().unreflectConstructor(accessible(c)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Binds a (possibly package-private) method of a core class
+     *
+     * @param className -> name of the core class
+     * @param name      -> name of the method
+     * @param params    -> parameter types, as classes or core class names
+     * @return -> handle taking the receiver (if any) first, with core types
+     *         erased to Object
+     */
+    private static MethodHandle method(String className, String name, Object... params) {
+        try {
+            Method m = load(className).getDeclaredMethod(name, types(params));
+            return erase(MethodHandles.lookup().unreflect(accessible(m)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static <T extends Executable> T accessible(T executable) {
+        executable.setAccessible(true);
+        return executable;
+    }
+
+    private static Class<?> load(String className) throws ClassNotFoundException {
+        return Class.forName(className, true, Core.class.getClassLoader());
+    }
+
+    private static Class<?>[] types(Object[] params) throws ClassNotFoundException {
+        Class<?>[] types = new Class<?>[params.length];
+        for (int i = 0; i < params.length; i++) {
+            types[i] = params[i] instanceof String ? load((String) params[i])
+                    : (Class<?>) params[i];
+        }
+        return types;
+    }
+
+    /**
+     * Replaces every core (default package) type in a handle's signature with
+     * Object
+     */
+    private static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (isCore(type.parameterType(i))) {
+                type = type.changeParameterType(i, Object.class);
+            }
+        }
+        if (isCore(type.returnType())) {
+            type = type.changeReturnType(Object.class);
+        }
+        return handle.asType(type);
+    }
+
+    private static boolean isCore(Class<?> type) {
+        return !type.isPrimitive() && type.getPackageName().isEmpty();
+    }
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The input of every benchmark: one generated image per (size, content)
+ * parameter pair, plus the output of each stage, so every stage can be
+ * measured on its own
+ */
+@State(Scope.Benchmark)
+public class ImageState {
+    @Param({"64", "128", "256", "512", "1024", "2048", "4096"})
+    public int size;
+
+    @Param({"solid", "checkerboard", "noise", "fractal"})
+    public String content;
+
+    /** the image to compress */
+    BufferedImage image;
+
+    /** maximum word length of the image */
+    int maxWordLen;
+
+    /** words of the black quadrants (input of buildDFA) */
+    List<String> words;
+
+    /** compressed Automaton of the image (input of findWords) */
+    Object automaton;
+
+    /** compressed DenseAutomaton of the image (input of decompress) */
+    Object denseAutomaton;
+
+    /**
+     * Generates the image and runs every stage once to build the inputs of
+     * the later stages
+     *
+     * @throws Throwable if a stage fails
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        image = Images.generate(content, size);
+        maxWordLen = Core.maxWordLength(size);
+
+        Object scanner = Core.newScanner(image);
+        words = Core.scanWords(scanner, maxWordLen);
+
+        Object table = Core.newTable();
+        int root = Core.buildTree(scanner, table, maxWordLen);
+        automaton = Core.toAutomaton(table, root);
+        denseAutomaton = Core.toDenseAutomaton(table, root);
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * Generates the black and white test images of the benchmarks
+ * -> solid: all black, the best case (one word)
+ * -> checkerboard: alternating single pixels, the worst case for the quadtree
+ * (every pixel is its own word, but only two distinct quadrant contents per
+ * level)
+ * -> noise: every pixel black with probability 1/2, few repeated quadrants
+ * -> fractal: a Sierpinski triangle of black pixels where (x & y) == 0, highly
+ * self-similar
+ */
+final class Images {
+    private static final int BLACK = 0x000000;
+    private static final int WHITE = 0xFFFFFF;
+
+    private Images() {
+    }
+
+    /**
+     * Generates a square test image
+     *
+     * @param content -> "solid", "checkerboard", "noise" or "fractal"
+     * @param size    -> width and height of the image in pixels
+     * @return -> the image, with the same content for the same arguments
+     */
+    static BufferedImage generate(String content, int size) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(size);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                boolean black;
+                switch (content) {
+                    case "solid":
+                        black = true;
+                        break;
+                    case "checkerboard":
+                        black = ((x ^ y) & 1) == 0;
+                        break;
+                    case "noise":
+                        black = random.nextBoolean();
+                        break;
+                    case "fractal":
+                        black = (x & y) == 0;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown image content " + content);
+                }
+                image.setRGB(x, y, black ? BLACK : WHITE);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * Benchmarks compression and decompression end to end, without file I/O
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Xss64m"})
+public class PipelineBenchmark {
+
+    /**
+     * Image to output lines, as Compress does before writing _cmp.txt
+     */
+    @Benchmark
+    public List<String> compress(ImageState state) throws Throwable {
+        Object table = Core.newTable();
+        int root = Core.buildTree(Core.newScanner(state.image), table, state.maxWordLen);
+        return Core.buildTransitions(table, root, 0);
+    }
+
+    /**
+     * Legacy pipeline: FindWordsToBlack words, then buildDFA
+     */
+    @Benchmark
+    public List<String> compressLegacy(ImageState state) throws Throwable {
+        return Core.buildDFA(Core.legacyWords(state.image, state.maxWordLen), 0);
+    }
+
+    /**
+     * Image to automaton and back to image
+     */
+    @Benchmark
+    public BufferedImage roundTrip(ImageState state) throws Throwable {
+        Object table = Core.newTable();
+        int root = Core.buildTree(Core.newScanner(state.image), table, state.maxWordLen);
+        return Core.render(Core.toDenseAutomaton(table, root), -1);
+    }
+}
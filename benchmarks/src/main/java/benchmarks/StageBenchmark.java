@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * Benchmarks each stage of compression and decompression on its own
+ * -> every stage starts from the precomputed output of the stage before it
+ * (see ImageState)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Xss64m"})
+public class StageBenchmark {
+
+    /**
+     * Legacy word search: FindWordsToBlack over sub-images
+     */
+    @Benchmark
+    public List<String> findWordsToBlack(ImageState state) throws Throwable {
+        return Core.legacyWords(state.image, state.maxWordLen);
+    }
+
+    /**
+     * Word search: QuadtreeScanner over a summed-area table, including building
+     * the table
+     */
+    @Benchmark
+    public List<String> scanWords(ImageState state) throws Throwable {
+        return Core.scanWords(Core.newScanner(state.image), state.maxWordLen);
+    }
+
+    /**
+     * Quadtree scan: QuadtreeScanner straight into hash-consed nodes, including
+     * building the summed-area table
+     */
+    @Benchmark
+    public int scanTree(ImageState state) throws Throwable {
+        return Core.buildTree(Core.newScanner(state.image), Core.newTable(), state.maxWordLen);
+    }
+
+    /**
+     * DFA construction from the word list: Compress.buildDFA
+     */
+    @Benchmark
+    public List<String> buildDFA(ImageState state) throws Throwable {
+        return Core.buildDFA(state.words, 0);
+    }
+
+    /**
+     * Word enumeration of the compressed automaton: Automaton.findWords
+     */
+    @Benchmark
+    public List<String> findWords(ImageState state) throws Throwable {
+        return Core.findWords(state.automaton, -1);
+    }
+
+    /**
+     * Word enumeration of the compressed automaton: DenseAutomaton.findWords
+     */
+    @Benchmark
+    public List<String> findWordsDense(ImageState state) throws Throwable {
+        return Core.findWordsDense(state.denseAutomaton, -1);
+    }
+
+    /**
+     * Decompression of the compressed automaton: AutomatonRenderer
+     */
+    @Benchmark
+    public BufferedImage decompress(ImageState state) throws Throwable {
+        return Core.render(state.denseAutomaton, -1);
+    }
+}
@@ -0,0 +1,335 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The AutomatonCache class keeps the compressed automata of earlier images in
+ * a directory, so an image that was compressed before is not scanned again
+ * -> an entry is keyed by a SHA-256 hash of the black and white raster of the
+ * image (only the pixels the scan sees as black, see QuadtreeScanner), its
+ * width and height, the multi-resolution mode and the --minimise option, so
+ * any two images with the same black pixels share an entry
+ * -> the raster of the common image types is hashed straight from its samples,
+ * without converting every pixel to ARGB, so a hit costs little more than
+ * decoding the image
+ * -> an entry holds the lines of the _cmp.txt file, in "<hash>.txt"
+ * -> the cache is bounded by the total size of its files, and evicts the
+ * least recently used entry when it is full; the order survives restarts
+ * through the last modified time of the files
+ * -> the cache is best effort: an entry that cannot be read or written is a
+ * miss, and never fails the compression
+ * -> one instance is shared by every user of the same directory, so the hit
+ * and miss counters cover a whole batch or server session
+ */
+public class AutomatonCache {
+    public static final long DEFAULT_MAX_BYTES = 256L << 20;
+
+    private static final String EXTENSION = ".txt";
+    private static final int BLACK = 0xFF000000;
+    private static final byte FORMAT = 1; // changes whenever the entries change
+
+    private static final Map<Path, AutomatonCache> OPEN = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> sizes; // hash -> file size, LRU first
+    private long totalBytes = 0;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Opens the cache in the given directory, creating the directory if needed
+     * -> a directory that is already open returns the same instance (and keeps
+     * its first size bound)
+     *
+     * @param directory -> the directory holding the entries
+     * @param maxBytes  -> the size bound of the cache in bytes
+     * @return -> the cache
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public static AutomatonCache open(Path directory, long maxBytes) throws IOException {
+        Path key = directory.toAbsolutePath().normalize();
+        AutomatonCache cache = OPEN.get(key);
+        if (cache != null) {
+            return cache;
+        }
+        synchronized (OPEN) {
+            cache = OPEN.get(key);
+            if (cache == null) {
+                cache = new AutomatonCache(key, maxBytes);
+                OPEN.put(key, cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Constructs the cache over the entries already in the directory, oldest
+     * first
+     *
+     * @param directory -> the directory holding the entries
+     * @param maxBytes  -> the size bound of the cache in bytes
+     * @throws IOException if the directory cannot be created or listed
+     */
+    private AutomatonCache(Path directory, long maxBytes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        this.sizes = new LinkedHashMap<>(16, 0.75f, true);
+
+        List<Path> entries = new ArrayList<>();
+        Map<Path, FileTime> times = new LinkedHashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                entries.add(file);
+                times.put(file, Files.getLastModifiedTime(file));
+            }
+        }
+        entries.sort(Comparator.comparing(times::get));
+        for (Path file : entries) {
+            String name = file.getFileName().toString();
+            long size = Files.size(file);
+            sizes.put(name.substring(0, name.length() - EXTENSION.length()), size);
+            totalBytes += size;
+        }
+        evict();
+    }
+
+    /**
+     * Hashes the black and white raster of an image into the key of its entry
+     * -> the raster is packed into one bit per pixel, row by row
+     *
+     * @param image        -> the image to compress
+     * @param multiResMode -> value for multi-res compression mode {0,1,2,3}
+     * @param minimise     -> whether the automaton is minimised
+     * @return -> the key, as a hexadecimal string
+     */
+    public static String key(BufferedImage image, int multiResMode, boolean minimise) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JVM has SHA-256
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        digest.update(new byte[] {FORMAT, (byte) multiResMode, (byte) (minimise ? 1 : 0)});
+        digest.update(("" + width + "x" + height).getBytes(StandardCharsets.US_ASCII));
+
+        WritableRaster raster = image.getRaster();
+        boolean[] palette = blackSamples(image);
+        boolean rgb = palette == null && isRgb(image);
+        int bands = raster.getNumBands();
+        int[] row = new int[rgb ? width * bands : width];
+        byte[] bits = new byte[(width + 7) / 8];
+        for (int y = 0; y < height; y++) {
+            Arrays.fill(bits, (byte) 0);
+            if (palette != null) {
+                raster.getSamples(0, y, width, 1, 0, row);
+                for (int x = 0; x < width; x++) {
+                    if (palette[row[x]]) {
+                        bits[x >> 3] |= (byte) (0x80 >>> (x & 7));
+                    }
+                }
+            } else if (rgb) {
+                raster.getPixels(0, y, width, 1, row);
+                for (int x = 0, i = 0; x < width; x++, i += bands) {
+                    if ((row[i] | row[i + 1] | row[i + 2]) == 0
+                            && (bands == 3 || row[i + 3] == 255)) {
+                        bits[x >> 3] |= (byte) (0x80 >>> (x & 7));
+                    }
+                }
+            } else {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                for (int x = 0; x < width; x++) {
+                    if (row[x] == BLACK) {
+                        bits[x >> 3] |= (byte) (0x80 >>> (x & 7));
+                    }
+                }
+            }
+            digest.update(bits);
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Finds which sample values of a single band image are black
+     * -> lets the raster be read without converting every pixel to ARGB
+     *
+     * @param image -> the image to hash
+     * @return -> whether each sample value is black, or null if the image has
+     *         more than one band or more than 8 bits per pixel
+     */
+    private static boolean[] blackSamples(BufferedImage image) {
+        ColorModel model = image.getColorModel();
+        if (image.getRaster().getNumBands() != 1 || model.getPixelSize() > 8) {
+            return null;
+        }
+        boolean[] black = new boolean[1 << model.getPixelSize()];
+        for (int value = 0; value < black.length; value++) {
+            black[value] = model.getRGB(value) == BLACK;
+        }
+        return black;
+    }
+
+    /**
+     * Checks whether an image holds one 8-bit sample per colour (and alpha,
+     * not premultiplied), so a pixel is black exactly when its red, green and
+     * blue samples are 0 and it is opaque
+     *
+     * @param image -> the image to hash
+     * @return -> true for the standard RGB and ARGB image types
+     */
+    private static boolean isRgb(BufferedImage image) {
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_BGR:
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Looks up the automaton of the given key
+     *
+     * @param key -> the key of the image (see key)
+     * @return -> the lines of the _cmp.txt file, or null if the image is not
+     *         cached (or was evicted)
+     */
+    public List<String> get(String key) {
+        synchronized (this) {
+            if (sizes.get(key) == null) { // get, not containsKey: marks the entry as used
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+
+        Path file = directory.resolve(key + EXTENSION);
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.incrementAndGet();
+            return lines;
+        } catch (IOException e) {
+            synchronized (this) {
+                Long size = sizes.remove(key);
+                if (size != null) {
+                    totalBytes -= size;
+                }
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Stores the automaton of the given key, evicting the least recently used
+     * entries until the cache fits its bound
+     * -> an automaton larger than the whole cache is not stored
+     *
+     * @param key   -> the key of the image (see key)
+     * @param lines -> the lines of the _cmp.txt file
+     */
+    public void put(String key, List<String> lines) {
+        Path file = directory.resolve(key + EXTENSION);
+        long size;
+        try {
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            try {
+                Files.write(temp, lines, StandardCharsets.US_ASCII);
+                size = Files.size(temp);
+                if (size > maxBytes) {
+                    return;
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            return;
+        }
+
+        synchronized (this) {
+            Long previous = sizes.put(key, size);
+            totalBytes += size - (previous == null ? 0 : previous);
+            evict();
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache fits its bound
+     */
+    private synchronized void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = sizes.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            try {
+                Files.deleteIfExists(directory.resolve(entry.getKey() + EXTENSION));
+            } catch (IOException e) {
+                continue; // keep counting it, it still takes up space
+            }
+            totalBytes -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Fetches the no. of lookups that found their automaton
+     *
+     * @return -> the no. of cache hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Fetches the no. of lookups that did not find their automaton
+     *
+     * @return -> the no. of cache misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Fetches the total size of the cached automata
+     *
+     * @return -> the size of the cache in bytes
+     */
+    public synchronized long getBytes() {
+        return totalBytes;
+    }
+}
@@ -0,0 +1,364 @@
+import java.util.Arrays;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The AutomatonMinimiser class reduces an automaton to the smallest
+ * automaton accepting the same words
+ * -> first trims the automaton: states that cannot be reached from the start
+ * state, or cannot reach an accept state, are dropped with their transitions
+ * -> a deterministic automaton is then minimised with Hopcroft's partition
+ * refinement in O(n log n), treating missing transitions as going to an
+ * implicit dead state
+ * -> automata that are still nondeterministic after trimming (e.g. the
+ * checkerboard loops of multi-resolution mode 2) are only trimmed
+ * -> states of the result are numbered breadth-first from the start state in
+ * symbol order, so the start state stays 0
+ */
+public class AutomatonMinimiser {
+
+    /**
+     * Minimises the given automaton
+     *
+     * @param automaton -> the automaton to minimise (not modified)
+     * @return -> a new automaton accepting the same words, with as few states as
+     *         possible, and the same image size
+     */
+    public static DenseAutomaton minimise(DenseAutomaton automaton) {
+        DenseAutomaton result = minimiseStates(automaton);
+        result.setImageSize(automaton.getImageWidth(), automaton.getImageHeight());
+        return result;
+    }
+
+    /**
+     * Minimises the states of the given automaton
+     *
+     * @param automaton -> the automaton to minimise (not modified)
+     * @return -> a new automaton accepting the same words
+     */
+    private static DenseAutomaton minimiseStates(DenseAutomaton automaton) {
+        int numStates = automaton.getNumStates();
+        int[] offsets = automaton.offsets();
+        int[] targets = automaton.targets();
+
+        boolean[] keep = trim(automaton, offsets, targets);
+        if (!keep[0]) {
+            return new DenseAutomaton(); // no words: a single non-accepting state
+        }
+
+        // trimming may remove the only nondeterministic transitions
+        boolean deterministic = true;
+        for (int k = 0; k < numStates * 4 && deterministic; k++) {
+            if (keep[k / 4]) {
+                int kept = 0;
+                for (int i = offsets[k]; i < offsets[k + 1]; i++) {
+                    if (keep[targets[i]]) {
+                        kept++;
+                    }
+                }
+                deterministic = kept <= 1;
+            }
+        }
+
+        int[] block = new int[numStates]; // state -> state of the result
+        if (deterministic) {
+            refine(automaton, offsets, targets, keep, block);
+        } else {
+            for (int state = 0; state < numStates; state++) {
+                block[state] = state;
+            }
+        }
+        return renumber(automaton, offsets, targets, keep, block);
+    }
+
+    /**
+     * Finds the states that are reachable from the start state and can reach an
+     * accept state
+     *
+     * @param automaton -> the automaton
+     * @param offsets   -> CSR offsets of the automaton's transitions
+     * @param targets   -> CSR targets of the automaton's transitions
+     * @return -> keep[state] = true if the state is kept
+     */
+    private static boolean[] trim(DenseAutomaton automaton, int[] offsets, int[] targets) {
+        int numStates = automaton.getNumStates();
+
+        boolean[] reachable = new boolean[numStates];
+        int[] queue = new int[numStates];
+        int head = 0;
+        int tail = 0;
+        reachable[0] = true;
+        queue[tail++] = 0;
+        while (head < tail) {
+            int state = queue[head++];
+            for (int i = offsets[state * 4]; i < offsets[state * 4 + 4]; i++) {
+                if (!reachable[targets[i]]) {
+                    reachable[targets[i]] = true;
+                    queue[tail++] = targets[i];
+                }
+            }
+        }
+
+        // predecessors of every state, to search backwards from accept states
+        int[] predStart = new int[numStates + 1];
+        for (int target : targets) {
+            predStart[target + 1]++;
+        }
+        for (int state = 0; state < numStates; state++) {
+            predStart[state + 1] += predStart[state];
+        }
+        int[] preds = new int[targets.length];
+        int[] fill = Arrays.copyOf(predStart, numStates);
+        for (int state = 0; state < numStates; state++) {
+            for (int i = offsets[state * 4]; i < offsets[state * 4 + 4]; i++) {
+                preds[fill[targets[i]]++] = state;
+            }
+        }
+
+        boolean[] keep = new boolean[numStates];
+        head = 0;
+        tail = 0;
+        for (int state = 0; state < numStates; state++) {
+            if (reachable[state] && automaton.isAcceptState(state)) {
+                keep[state] = true;
+                queue[tail++] = state;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            for (int i = predStart[state]; i < predStart[state + 1]; i++) {
+                if (reachable[preds[i]] && !keep[preds[i]]) {
+                    keep[preds[i]] = true;
+                    queue[tail++] = preds[i];
+                }
+            }
+        }
+        return keep;
+    }
+
+    /**
+     * Partitions the kept states of a deterministic automaton into classes of
+     * equivalent states with Hopcroft's algorithm
+     * -> starts from {accept states, other states, dead state} and splits
+     * blocks by (splitter block, symbol) pairs until no block can be split
+     *
+     * @param automaton -> the automaton
+     * @param offsets   -> CSR offsets of the automaton's transitions
+     * @param targets   -> CSR targets of the automaton's transitions
+     * @param keep      -> the states kept by trim
+     * @param block     -> filled with the block of every kept state
+     */
+    private static void refine(DenseAutomaton automaton, int[] offsets, int[] targets,
+            boolean[] keep, int[] block) {
+        int numStates = automaton.getNumStates();
+        int dead = numStates; // stands in for every missing or trimmed transition
+        int n = numStates + 1;
+
+        // complete transition function over the kept states and the dead state
+        int[] next = new int[n * 4];
+        Arrays.fill(next, dead);
+        for (int state = 0; state < numStates; state++) {
+            if (!keep[state]) {
+                continue;
+            }
+            for (int symbol = 0; symbol < 4; symbol++) {
+                int k = state * 4 + symbol;
+                for (int i = offsets[k]; i < offsets[k + 1]; i++) {
+                    if (keep[targets[i]]) {
+                        next[k] = targets[i];
+                    }
+                }
+            }
+        }
+
+        // inverse transitions: predecessors of (state, symbol)
+        int[] invStart = new int[n * 4 + 1];
+        for (int state = 0; state < n; state++) {
+            if (state == dead || keep[state]) {
+                for (int symbol = 0; symbol < 4; symbol++) {
+                    invStart[next[state * 4 + symbol] * 4 + symbol + 1]++;
+                }
+            }
+        }
+        for (int k = 0; k < n * 4; k++) {
+            invStart[k + 1] += invStart[k];
+        }
+        int[] inv = new int[invStart[n * 4]];
+        int[] fill = Arrays.copyOf(invStart, n * 4);
+        for (int state = 0; state < n; state++) {
+            if (state == dead || keep[state]) {
+                for (int symbol = 0; symbol < 4; symbol++) {
+                    int to = next[state * 4 + symbol];
+                    inv[fill[to * 4 + symbol]++] = state;
+                }
+            }
+        }
+
+        // the partition: states of block b are elements[first[b]..end[b]), the
+        // marked ones in front of mid[b]
+        int[] elements = new int[n];
+        int[] location = new int[n];
+        int[] first = new int[n];
+        int[] end = new int[n];
+        int[] mid = new int[n];
+        int size = 0;
+        int accepting = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int state = 0; state < numStates; state++) {
+                if (keep[state] && automaton.isAcceptState(state) == (pass == 0)) {
+                    location[state] = size;
+                    elements[size++] = state;
+                }
+            }
+            if (pass == 0) {
+                accepting = size;
+            }
+        }
+        location[dead] = size;
+        elements[size++] = dead;
+
+        // initial blocks: accept states, other states, dead state
+        int blocks = 0;
+        int[] blockOf = new int[n];
+        int[] bounds = {0, accepting, size - 1, size};
+        for (int r = 0; r < 3; r++) {
+            if (bounds[r] < bounds[r + 1]) {
+                first[blocks] = bounds[r];
+                end[blocks] = bounds[r + 1];
+                mid[blocks] = bounds[r];
+                for (int i = bounds[r]; i < bounds[r + 1]; i++) {
+                    blockOf[elements[i]] = blocks;
+                }
+                blocks++;
+            }
+        }
+
+        // every initial block is a splitter for every symbol
+        int[] work = new int[n * 4];
+        boolean[] waiting = new boolean[n * 4];
+        int workSize = 0;
+        for (int b = 0; b < blocks; b++) {
+            for (int symbol = 0; symbol < 4; symbol++) {
+                work[workSize++] = b * 4 + symbol;
+                waiting[b * 4 + symbol] = true;
+            }
+        }
+
+        int[] splitter = new int[n];
+        int[] touched = new int[n];
+        while (workSize > 0) {
+            int pair = work[--workSize];
+            waiting[pair] = false;
+            int b = pair / 4;
+            int symbol = pair % 4;
+
+            // copy the splitter, as marking reorders the states of its block
+            int count = end[b] - first[b];
+            System.arraycopy(elements, first[b], splitter, 0, count);
+
+            int numTouched = 0;
+            for (int s = 0; s < count; s++) {
+                int k = splitter[s] * 4 + symbol;
+                for (int i = invStart[k]; i < invStart[k + 1]; i++) {
+                    int state = inv[i];
+                    int c = blockOf[state];
+                    if (location[state] < mid[c]) {
+                        continue; // already marked
+                    }
+                    if (mid[c] == first[c]) {
+                        touched[numTouched++] = c;
+                    }
+                    // swap the state to the end of the marked part
+                    int other = elements[mid[c]];
+                    elements[location[state]] = other;
+                    location[other] = location[state];
+                    elements[mid[c]] = state;
+                    location[state] = mid[c];
+                    mid[c]++;
+                }
+            }
+
+            for (int t = 0; t < numTouched; t++) {
+                int c = touched[t];
+                if (mid[c] == end[c]) { // every state was marked: no split
+                    mid[c] = first[c];
+                    continue;
+                }
+
+                // the marked states become a new block
+                int split = blocks++;
+                first[split] = first[c];
+                end[split] = mid[c];
+                mid[split] = first[split];
+                first[c] = mid[c];
+                for (int i = first[split]; i < end[split]; i++) {
+                    blockOf[elements[i]] = split;
+                }
+
+                for (int a = 0; a < 4; a++) {
+                    int add;
+                    if (waiting[c * 4 + a]) {
+                        add = split;
+                    } else {
+                        add = end[split] - first[split] <= end[c] - first[c] ? split : c;
+                    }
+                    work[workSize++] = add * 4 + a;
+                    waiting[add * 4 + a] = true;
+                }
+            }
+        }
+
+        for (int state = 0; state < numStates; state++) {
+            if (keep[state]) {
+                block[state] = blockOf[state];
+            }
+        }
+    }
+
+    /**
+     * Builds the result from the classes of states, numbering them
+     * breadth-first from the start state
+     *
+     * @param automaton -> the automaton
+     * @param offsets   -> CSR offsets of the automaton's transitions
+     * @param targets   -> CSR targets of the automaton's transitions
+     * @param keep      -> the states kept by trim
+     * @param block     -> the class of every kept state
+     * @return -> the automaton over the classes
+     */
+    private static DenseAutomaton renumber(DenseAutomaton automaton, int[] offsets, int[] targets,
+            boolean[] keep, int[] block) {
+        int numStates = automaton.getNumStates();
+        int[] stateOf = new int[numStates + 1]; // class -> state of the result
+        Arrays.fill(stateOf, -1);
+        int[] representative = new int[numStates]; // state of the result -> state
+        int n = 0;
+        stateOf[block[0]] = n;
+        representative[n++] = 0;
+
+        DenseAutomaton result = new DenseAutomaton();
+        for (int i = 0; i < n; i++) {
+            int state = representative[i];
+            if (automaton.isAcceptState(state)) {
+                result.addAcceptState(i);
+            }
+            for (int symbol = 0; symbol < 4; symbol++) {
+                for (int t = offsets[state * 4 + symbol]; t < offsets[state * 4 + symbol + 1]; t++) {
+                    int target = targets[t];
+                    if (!keep[target]) {
+                        continue;
+                    }
+                    if (stateOf[block[target]] == -1) {
+                        stateOf[block[target]] = n;
+                        representative[n++] = target;
+                        result.addState(n - 1);
+                    }
+                    result.addTransition(i, stateOf[block[target]], symbol);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,579 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The AutomatonRenderer class draws the image described by an automaton
+ * directly into a raster, without building any words
+ * -> walks the automaton state by state, where each (state, quadrant) pair
+ * that reaches an accept state fills its square of the raster in one go
+ * -> states that cannot reach an accept state are never entered
+ * -> produces the same image as colouring the coordinates of every word
+ * returned by DenseAutomaton.findWords
+ * -> a nondeterministic automaton is walked through its subset construction
+ * (see SubsetAutomaton), so every quadrant is visited once with the set of
+ * states active there, however many paths of the automaton reach it
+ * -> the square drawn from a (deterministic) state only depends on the state
+ * and the size of the square, so each distinct (state, depth) tile is
+ * rendered once and copied to every other place it appears (see TileCache)
+ * -> renderRegion draws only a window of the image: branches whose squares
+ * miss the window are never entered, so the cost follows the window and not
+ * the whole image
+ * -> images are 1-bit TYPE_BYTE_BINARY rasters (8 pixels per byte, first
+ * pixel in the highest bit, 1 = white), so squares are filled and tiles
+ * copied a whole byte at a time
+ * -> an automaton that stores its image size (see
+ * DenseAutomaton.setImageSize) is rendered cropped to that size, scaled to
+ * the resolution drawn
+ */
+public class AutomatonRenderer {
+    private static final int MIN_CACHED_DEPTH = 3; // smaller tiles are cheaper to redraw
+
+    private final int numStates;
+    private final int[] offsets; // transitions of (state, symbol) are
+                                 // targets[offsets[state * 4 + symbol]..offsets[state * 4 + symbol + 1]]
+    private final int[] targets;
+    private final boolean[] accept;
+    private final boolean[] live; // an accept state can be reached from the state
+    private final boolean deterministic;
+    private SubsetAutomaton subsets; // null for deterministic automata
+    private final int imageWidth; // true size of the image, 0 if it fills the canvas
+    private final int imageHeight;
+
+    private byte[] pixels; // the window being rendered, row by row, 1 bit per pixel
+    private int stride; // bytes per row
+    private int regionX; // window position and size in image coordinates
+    private int regionY;
+    private int width;
+    private int height;
+    private long pixelsWritten = 0;
+    private long cacheBytes = TileCache.DEFAULT_MAX_BYTES;
+    private TileCache cache;
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+
+    /**
+     * Constructs a new renderer for the given automaton
+     * -> shares the automaton's CSR transition table
+     * -> finds the states that can reach an accept state
+     *
+     * @param automaton -> the automaton to render
+     */
+    public AutomatonRenderer(DenseAutomaton automaton) {
+        numStates = automaton.getNumStates();
+        accept = new boolean[numStates];
+        for (int state = 0; state < numStates; state++) {
+            accept[state] = automaton.isAcceptState(state);
+        }
+        offsets = automaton.offsets();
+        targets = automaton.targets();
+
+        boolean single = true;
+        for (int k = 0; k < numStates * 4 && single; k++) {
+            single = offsets[k + 1] - offsets[k] <= 1;
+        }
+        deterministic = single;
+
+        live = automaton.findLiveStates();
+        imageWidth = automaton.getImageWidth();
+        imageHeight = automaton.getImageHeight();
+    }
+
+    /**
+     * Sets the memory bound of the tile cache used by render
+     *
+     * @param cacheBytes -> the memory bound in bytes, 0 to render without a cache
+     */
+    public void setCacheSize(long cacheBytes) {
+        this.cacheBytes = cacheBytes;
+    }
+
+    /**
+     * Calculates the size of the image rendered for the given word length
+     * -> with multi-resolution (wordLen > 0) the image is 2^wordLen pixels wide
+     * -> otherwise the image is 2^(length of the longest word) pixels wide, and
+     * at least as wide as the canvas of a stored image size
+     * -> this is the size of the canvas drawn; the image itself is cropped to
+     * getImageWidth x getImageHeight
+     *
+     * @param wordLen -> the multi-resolution word length, <= 0 for none
+     * @return -> the width and height of the canvas in pixels
+     * @throws IllegalStateException if wordLen <= 0 and the automaton accepts
+     *                               infinitely many words
+     */
+    public int getSize(int wordLen) {
+        if (wordLen > 0) {
+            return (int) Math.pow(2.0, wordLen);
+        }
+        int size = (int) Math.pow(2.0, Math.max(findLongestWord(), 0));
+        if (imageWidth > 0) {
+            size = Math.max(size, Compress.canvasSize(imageWidth, imageHeight));
+        }
+        return size;
+    }
+
+    /**
+     * Calculates the width of the image drawn on a canvas of the given size
+     *
+     * @param size -> width and height of the canvas (see getSize)
+     * @return -> the stored image width scaled to the canvas (rounded up), or
+     *         size if no image size is stored
+     */
+    public int getImageWidth(int size) {
+        return scale(imageWidth, size);
+    }
+
+    /**
+     * Calculates the height of the image drawn on a canvas of the given size
+     *
+     * @param size -> width and height of the canvas (see getSize)
+     * @return -> the stored image height scaled to the canvas (rounded up), or
+     *         size if no image size is stored
+     */
+    public int getImageHeight(int size) {
+        return scale(imageHeight, size);
+    }
+
+    /**
+     * Scales a side of the stored image size to a canvas of the given size
+     */
+    private int scale(int length, int size) {
+        if (imageWidth <= 0) {
+            return size;
+        }
+        long canvas = Compress.canvasSize(imageWidth, imageHeight);
+        return (int) Math.max(1, (length * (long) size + canvas - 1) / canvas);
+    }
+
+    /**
+     * Renders the automaton into a new image
+     * -> the image starts out white and every accepted square is filled black
+     * -> with multi-resolution (wordLen > 0) only words of exactly wordLen
+     * symbols are drawn, as in DenseAutomaton.findWords
+     * -> a stored image size crops the image to its top left corner
+     *
+     * @param wordLen -> the multi-resolution word length, <= 0 for none
+     * @return -> the rendered image
+     */
+    public BufferedImage render(int wordLen) {
+        int size = getSize(wordLen);
+        return render(0, 0, getImageWidth(size), getImageHeight(size), wordLen, size);
+    }
+
+    /**
+     * Renders a window of the image of the given depth into a new image
+     * -> only the automaton branches whose quadrants intersect the window are
+     * descended, using the | 1 3 | / | 0 2 | quadrant layout
+     * -> the result equals the same window cut out of render(depth)
+     *
+     * @param x      -> x-coordinate of the top left corner of the window
+     * @param y      -> y-coordinate of the top left corner of the window
+     * @param width  -> width of the window in pixels
+     * @param height -> height of the window in pixels
+     * @param depth  -> the multi-resolution word length, <= 0 for none, which
+     *               sets the size of the whole image as in render
+     * @return -> the rendered window, width x height pixels
+     * @throws IllegalArgumentException if the window is empty or not inside the
+     *                                  (cropped) image
+     * @throws IllegalStateException    if depth <= 0 and the automaton accepts
+     *                                  infinitely many words
+     */
+    public BufferedImage renderRegion(int x, int y, int width, int height, int depth) {
+        int size = getSize(depth);
+        if (x < 0 || y < 0 || width < 1 || height < 1 || x > getImageWidth(size) - width
+                || y > getImageHeight(size) - height) {
+            throw new IllegalArgumentException("Decompress Error - Invalid region");
+        }
+        return render(x, y, width, height, depth, size);
+    }
+
+    /**
+     * Renders the given window of an image of the given size
+     */
+    private BufferedImage render(int x, int y, int width, int height, int depth, int size) {
+        this.regionX = x;
+        this.regionY = y;
+        this.width = width;
+        this.height = height;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        stride = (width + 7) >> 3;
+        Arrays.fill(pixels, (byte) 0xFF);
+
+        cache = cacheBytes > 0 ? new TileCache(cacheBytes) : null;
+        if (!deterministic && subsets == null) {
+            subsets = new SubsetAutomaton(numStates, offsets, targets, accept, live);
+        }
+        if (live[0]) {
+            if (depth > 0) {
+                renderExact(0, depth, 0, 0, size);
+            } else {
+                renderAll(0, 0, 0, size);
+            }
+        }
+        if (cache != null) {
+            cacheHits += cache.getHits();
+            cacheMisses += cache.getMisses();
+        }
+        cache = null;
+        pixels = null;
+        return image;
+    }
+
+    /**
+     * Recursively renders every word accepted from the given state
+     * -> an accept state fills its whole square, which already covers every
+     * longer word below it
+     *
+     * @param state -> the current (deterministic) state
+     * @param x     -> x-coordinate of the top left corner of the square
+     * @param y     -> y-coordinate of the top left corner of the square
+     * @param side  -> width and height of the square
+     */
+    private void renderAll(int state, int x, int y, int side) {
+        if (accepts(state)) {
+            fill(x, y, side);
+            return;
+        }
+
+        int depth = Integer.numberOfTrailingZeros(side);
+        boolean cached = cache != null && side > 0 && depth >= MIN_CACHED_DEPTH
+                && contains(x, y, side);
+        if (cached && copyTile(state, depth, x, y, side)) {
+            return;
+        }
+        long before = pixelsWritten;
+
+        int half = side / 2;
+        for (int input = 0; input < 4; input++) {
+            int childX = x + (input >> 1) * half;
+            int childY = y + (~input & 1) * half;
+            int next = next(state, input);
+            if (next >= 0 && intersects(childX, childY, half)) {
+                renderAll(next, childX, childY, half);
+            }
+        }
+        if (cached) {
+            cache.put(state, depth, x, y, (int) (pixelsWritten - before));
+        }
+    }
+
+    /**
+     * Recursively renders the words of exactly the remaining length accepted from
+     * the given state
+     *
+     * @param state     -> the current (deterministic) state
+     * @param remaining -> the number of symbols left to read
+     * @param x         -> x-coordinate of the top left corner of the square
+     * @param y         -> y-coordinate of the top left corner of the square
+     * @param side      -> width and height of the square
+     */
+    private void renderExact(int state, int remaining, int x, int y, int side) {
+        if (remaining == 0) {
+            if (accepts(state)) {
+                fill(x, y, side);
+            }
+            return;
+        }
+
+        boolean cached = cache != null && remaining >= MIN_CACHED_DEPTH && contains(x, y, side);
+        if (cached && copyTile(state, remaining, x, y, side)) {
+            return;
+        }
+        long before = pixelsWritten;
+
+        int half = side / 2;
+        for (int input = 0; input < 4; input++) {
+            int childX = x + (input >> 1) * half;
+            int childY = y + (~input & 1) * half;
+            int next = next(state, input);
+            if (next >= 0 && intersects(childX, childY, half)) {
+                renderExact(next, remaining - 1, childX, childY, half);
+            }
+        }
+        if (cached) {
+            cache.put(state, remaining, x, y, (int) (pixelsWritten - before));
+        }
+    }
+
+    /**
+     * Follows the transition of the given state with the given symbol
+     * -> states are states of the automaton if it is deterministic, and sets of
+     * the subset construction otherwise
+     *
+     * @param state -> the current state
+     * @param input -> the input symbol
+     * @return -> the next state, or -1 if no state that can reach an accept
+     *         state follows
+     */
+    private int next(int state, int input) {
+        if (subsets != null) {
+            return subsets.next(state, input);
+        }
+        int i = offsets[state * 4 + input];
+        return i < offsets[state * 4 + input + 1] && live[targets[i]] ? targets[i] : -1;
+    }
+
+    /**
+     * Checks whether the given state accepts
+     *
+     * @param state -> the current state (see next)
+     * @return -> true if the state is, or holds, an accept state
+     */
+    private boolean accepts(int state) {
+        return subsets != null ? subsets.isAccept(state) : accept[state];
+    }
+
+    /**
+     * Copies the tile of the given state and depth from where it was first
+     * rendered, if it is in the cache
+     * -> only used for squares inside the window, and only such squares are
+     * put in the cache, so the source and target rows are both in the raster
+     * -> tiles are at least 8 pixels wide and start at a multiple of their
+     * width, so the source and target start at the same bit of a byte
+     *
+     * @param state -> the current state
+     * @param depth -> log2 of the width of the tile
+     * @param x     -> x-coordinate of the top left corner of the square
+     * @param y     -> y-coordinate of the top left corner of the square
+     * @param side  -> width and height of the square
+     * @return -> true if the tile was copied, false if it must be rendered
+     */
+    private boolean copyTile(int state, int depth, int x, int y, int side) {
+        int[] tile = cache.get(state, depth);
+        if (tile == null) {
+            return false;
+        }
+        if (tile[2] > 0) { // an all white tile is already in place
+            for (int row = 0; row < side; row++) {
+                copyRow((tile[1] - regionY + row) * stride, tile[0] - regionX,
+                        (y - regionY + row) * stride, x - regionX, side);
+            }
+            pixelsWritten += tile[2];
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether an accept state can be reached from the given state
+     *
+     * @param state -> ID of the state
+     * @return -> true if the state can lead to a black square, false otherwise
+     */
+    public boolean isLive(int state) {
+        return live[state];
+    }
+
+    /**
+     * Checks whether the automaton has at most one transition per state and
+     * symbol
+     *
+     * @return -> true if the automaton is deterministic, false otherwise
+     */
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    /**
+     * Fetches the no. of black pixels written by render so far
+     *
+     * @return -> the no. of pixels written
+     */
+    public long getPixelsWritten() {
+        return pixelsWritten;
+    }
+
+    /**
+     * Fetches the no. of tiles copied from the tile cache by render so far
+     *
+     * @return -> the no. of cache hits
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Fetches the no. of tiles rendered because they were not in the tile
+     * cache
+     *
+     * @return -> the no. of cache misses
+     */
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * Fills the part of the given square inside the window black, one row at a
+     * time
+     *
+     * @param x    -> x-coordinate of the top left corner of the square
+     * @param y    -> y-coordinate of the top left corner of the square
+     * @param side -> width and height of the square
+     */
+    private void fill(int x, int y, int side) {
+        int left = Math.max(x, regionX) - regionX;
+        int right = Math.min(x + side, regionX + width) - regionX;
+        int top = Math.max(y, regionY) - regionY;
+        int bottom = Math.min(y + side, regionY + height) - regionY;
+        if (left >= right || top >= bottom) {
+            return;
+        }
+        pixelsWritten += (long) (right - left) * (bottom - top);
+        int first = left >> 3;
+        int last = (right - 1) >> 3;
+        int head = 0xFF >>> (left & 7); // bits of the first byte from left on
+        int tail = 0xFF << (7 - ((right - 1) & 7)); // bits of the last byte up to right
+        for (int row = top; row < bottom; row++) {
+            int start = row * stride;
+            if (first == last) {
+                pixels[start + first] &= (byte) ~(head & tail);
+            } else {
+                pixels[start + first] &= (byte) ~head;
+                Arrays.fill(pixels, start + first + 1, start + last, (byte) 0);
+                pixels[start + last] &= (byte) ~tail;
+            }
+        }
+    }
+
+    /**
+     * Copies a run of pixels from one row of the raster to another, where the
+     * run starts at the same bit of a byte in both rows
+     *
+     * @param from   -> index of the first byte of the source row
+     * @param fromX  -> x-coordinate of the run in the source row
+     * @param to     -> index of the first byte of the target row
+     * @param toX    -> x-coordinate of the run in the target row
+     * @param length -> no. of pixels in the run
+     */
+    private void copyRow(int from, int fromX, int to, int toX, int length) {
+        int lead = toX & 7;
+        int end = lead + length; // end of the run, in bits from the first byte
+        from += fromX >> 3;
+        to += toX >> 3;
+        int i = 0;
+        if (lead != 0) {
+            int mask = 0xFF >>> lead;
+            if (end < 8) {
+                mask &= 0xFF << (8 - end);
+            }
+            pixels[to] = (byte) (pixels[to] & ~mask | pixels[from] & mask);
+            if (end <= 8) {
+                return;
+            }
+            i = 1;
+        }
+        int whole = (end >> 3) - i;
+        System.arraycopy(pixels, from + i, pixels, to + i, whole);
+        i += whole;
+        if ((end & 7) != 0) {
+            int mask = 0xFF << (8 - (end & 7));
+            pixels[to + i] = (byte) (pixels[to + i] & ~mask | pixels[from + i] & mask);
+        }
+    }
+
+    /**
+     * Checks whether the given square overlaps the window
+     *
+     * @param x    -> x-coordinate of the top left corner of the square
+     * @param y    -> y-coordinate of the top left corner of the square
+     * @param side -> width and height of the square
+     * @return -> true if at least one pixel of the square is in the window
+     */
+    private boolean intersects(int x, int y, int side) {
+        return x < regionX + width && x + side > regionX
+                && y < regionY + height && y + side > regionY;
+    }
+
+    /**
+     * Checks whether the given square lies entirely inside the window
+     *
+     * @param x    -> x-coordinate of the top left corner of the square
+     * @param y    -> y-coordinate of the top left corner of the square
+     * @param side -> width and height of the square
+     * @return -> true if every pixel of the square is in the window
+     */
+    private boolean contains(int x, int y, int side) {
+        return x >= regionX && x + side <= regionX + width
+                && y >= regionY && y + side <= regionY + height;
+    }
+
+    /**
+     * Finds the length of the longest word accepted by the automaton
+     * -> topologically sorts the live states reachable from the start state
+     * (Kahn's algorithm), then finds the longest path to an accept state in
+     * reverse topological order
+     *
+     * @return -> the length of the longest word, or -1 if there are no words
+     * @throws IllegalStateException if a cycle can be followed on the way to an
+     *                               accept state (infinitely many words)
+     */
+    private int findLongestWord() {
+        if (!live[0]) {
+            return -1;
+        }
+
+        // live states reachable from the start state
+        boolean[] reachable = new boolean[numStates];
+        int[] order = new int[numStates];
+        int tail = 0;
+        reachable[0] = true;
+        order[tail++] = 0;
+        for (int head = 0; head < tail; head++) {
+            int state = order[head];
+            for (int i = offsets[state * 4]; i < offsets[state * 4 + 4]; i++) {
+                int next = targets[i];
+                if (live[next] && !reachable[next]) {
+                    reachable[next] = true;
+                    order[tail++] = next;
+                }
+            }
+        }
+
+        int[] inDegree = new int[numStates];
+        for (int j = 0; j < tail; j++) {
+            int state = order[j];
+            for (int i = offsets[state * 4]; i < offsets[state * 4 + 4]; i++) {
+                if (live[targets[i]]) {
+                    inDegree[targets[i]]++;
+                }
+            }
+        }
+        int sorted = 0;
+        int[] topological = new int[tail];
+        for (int j = 0; j < tail; j++) {
+            if (inDegree[order[j]] == 0) {
+                topological[sorted++] = order[j];
+            }
+        }
+        for (int head = 0; head < sorted; head++) {
+            int state = topological[head];
+            for (int i = offsets[state * 4]; i < offsets[state * 4 + 4]; i++) {
+                int next = targets[i];
+                if (live[next] && --inDegree[next] == 0) {
+                    topological[sorted++] = next;
+                }
+            }
+        }
+        if (sorted < tail) {
+            throw new IllegalStateException(
+                    "Decompress Error - Cyclic automaton requires a word length");
+        }
+
+        int[] longest = new int[numStates];
+        for (int j = sorted - 1; j >= 0; j--) {
+            int state = topological[j];
+            int best = accept[state] ? 0 : -1;
+            for (int i = offsets[state * 4]; i < offsets[state * 4 + 4]; i++) {
+                if (live[targets[i]]) {
+                    best = Math.max(best, longest[targets[i]] + 1);
+                }
+            }
+            longest[state] = best;
+        }
+        return longest[0];
+    }
+}
@@ -0,0 +1,375 @@
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * Compress & decompress many files in one run
+ * -> takes a directory (every image, or every automaton, in it) or a manifest
+ * file (one path per line, blank lines and lines starting with # are skipped)
+ * -> the JVM starts and warms up once for the whole batch
+ * -> the files flow through a read, compute and write pipeline (see
+ * BatchPipeline), so reading and writing overlap with compression; with
+ * --progressive, which writes several images per file, each file is instead
+ * processed whole on a fixed pool of --workers threads
+ * -> prints one status line per file as it finishes, and a file that fails is
+ * reported and skipped instead of terminating the program
+ * -> with --stats=<file>, the statistics of every file are written as a JSON
+ * array
+ * -> with --sequence, the images are compressed in order as the frames of one
+ * "out/<name>_cmp.seq" container, named after the directory or manifest (see
+ * SequenceCompressor); a frame that fails is left out of the container
+ */
+public class BatchCompress {
+
+    /**
+     * Main class for batch compression/decompression
+     * -> uses the same mode, multi-resolution and word length arguments as
+     * Compress, without the GUI mode
+     * -> prints "OK <file> <time> ms" or "FAILED <file> <time> ms - <error>"
+     * per file, then a summary line (and the automaton cache hits and misses
+     * with --cache=<dir>)
+     *
+     * @param args -> [--options] <mode> <multi-resolution flag>
+     *             [<word length/multi-resolution method>] <directory/manifest>
+     */
+    public static void main(String[] args) {
+        CompressOptions options = new CompressOptions(args);
+        args = options.getArguments();
+        if (args.length < 3 || args.length > 4) {
+            System.err.println("Input Error - Invalid number of arguments");
+            System.exit(0);
+        }
+
+        int mode = 0;
+        int wordLen = -1;
+        int multiResMode = 0;
+        boolean multiRes = args[1].equalsIgnoreCase("t");
+        try {
+            mode = Integer.parseInt(args[0]);
+            if (multiRes && args.length == 4) {
+                if (mode == 1) {
+                    wordLen = Integer.parseInt(args[2]);
+                } else {
+                    multiResMode = Integer.parseInt(args[2]);
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Input Error - Invalid argument type");
+            System.exit(0);
+        }
+
+        if (mode != 1 && mode != 2) {
+            System.err.println("Input Error - Invalid mode");
+            System.exit(0);
+        }
+        if (!multiRes && !args[1].equalsIgnoreCase("f")) {
+            System.err.println("Input Error - Invalid multi-resolution flag");
+            System.exit(0);
+        }
+        if (args.length != (multiRes ? 4 : 3)) {
+            System.err.println("Input Error - Invalid number of arguments");
+            System.exit(0);
+        }
+        if (wordLen < -1 || (multiRes && mode == 1 && wordLen < 0)) {
+            System.err.println("Decompress Error - Invalid word length");
+            System.exit(0);
+        }
+        if (multiRes && mode == 2 && (multiResMode < 1 || multiResMode > 3)) {
+            System.err.println("Compress Error - Invalid multi-resolution method");
+            System.exit(0);
+        }
+        if (options.isSequence() && (mode != 2 || multiRes)) {
+            System.err.println("Input Error - Invalid option");
+            System.exit(0);
+        }
+
+        File input = new File(args[args.length - 1]);
+        List<String> files = null;
+        try {
+            files = listFiles(input, mode);
+        } catch (IOException e) {
+            System.err.println("Input Error - Invalid or missing file");
+            System.exit(0);
+        }
+
+        List<CompressStats> runs = options.isSequence() ? runSequence(files, sequencePath(input))
+                : run(files, mode, wordLen, multiResMode, options);
+        int failed = 0;
+        long hits = 0;
+        long misses = 0;
+        for (CompressStats stats : runs) {
+            if (stats.getError() != null) {
+                failed++;
+            }
+            hits += stats.get(CompressStats.Counter.CACHE_HITS);
+            misses += stats.get(CompressStats.Counter.CACHE_MISSES);
+        }
+        System.out.println((files.size() - failed) + " of " + files.size()
+                + " files processed, " + failed + " failed");
+        if (options.getCacheDir() != null) {
+            System.out.println("Cache: " + hits + " hits, " + misses + " misses");
+        }
+
+        if (options.getStatsFile() != null) {
+            try {
+                CompressStats.writeJson(runs, options.getStatsFile());
+            } catch (IOException e) {
+                System.err.println("Input Error - Invalid or missing file");
+            }
+        }
+    }
+
+    /**
+     * Lists the files of a batch
+     * -> a directory yields its .png images (compression) or its .txt, .bin and
+     * .gray automata (decompression), sorted by name
+     * -> any other file is read as a manifest of paths
+     *
+     * @param input -> the directory or manifest file
+     * @param mode  -> 1 = decompression, 2 = compression
+     * @return -> the paths of the files to process, in order
+     * @throws IOException if the directory or manifest cannot be read
+     */
+    static List<String> listFiles(File input, int mode) throws IOException {
+        List<String> files = new ArrayList<>();
+        if (input.isDirectory()) {
+            File[] entries = input.listFiles();
+            if (entries == null) {
+                throw new IOException("Cannot list " + input);
+            }
+            Arrays.sort(entries);
+            for (File entry : entries) {
+                String name = entry.getName();
+                boolean wanted = mode == 2 ? name.endsWith(".png")
+                        : name.endsWith(".txt") || name.endsWith(BinaryAutomatonFormat.EXTENSION)
+                                || name.endsWith(GrayscaleCompressor.EXTENSION);
+                if (entry.isFile() && wanted) {
+                    files.add(entry.getPath());
+                }
+            }
+        } else {
+            for (String line : Files.readAllLines(input.toPath())) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    files.add(line);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Processes the given files, through the staged pipeline or on a pool of
+     * worker threads
+     * -> prints a status line for every file as soon as it finishes
+     *
+     * @param files        -> the paths of the files to process
+     * @param mode         -> 1 = decompression, 2 = compression
+     * @param wordLen      -> word length to decompress, or -1 for all words
+     * @param multiResMode -> multi-resolution compression method {0,1,2,3}
+     * @param options      -> the command line options
+     * @return -> the statistics of every file, in the order they finished
+     */
+    static List<CompressStats> run(List<String> files, int mode, int wordLen, int multiResMode,
+            CompressOptions options) {
+        if (options.isProgressive()) {
+            return runPool(files, mode, wordLen, multiResMode, options);
+        }
+
+        BatchPipeline pipeline = new BatchPipeline(files, mode, wordLen, multiResMode, options);
+        List<CompressStats> runs = new ArrayList<>();
+        pipeline.start();
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                CompressStats stats = pipeline.take();
+                runs.add(stats);
+                report(stats);
+            }
+            return runs;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return runs;
+        } finally {
+            pipeline.stop();
+        }
+    }
+
+    /**
+     * Compresses the given images, in order, as the frames of one sequence
+     * container
+     * -> prints a status line for every frame as soon as it is compressed, then
+     * the no. of frames and shared states of the container
+     *
+     * @param files  -> the paths of the images, in frame order
+     * @param output -> the path of the container to write
+     * @return -> the statistics of every frame, in order
+     */
+    static List<CompressStats> runSequence(List<String> files, String output) {
+        SequenceCompressor sequence = new SequenceCompressor();
+        List<CompressStats> runs = new ArrayList<>();
+        for (String file : files) {
+            CompressStats stats = new CompressStats("compress", file);
+            String error = null;
+            stats.begin("read");
+            try (ImageInputStream in = ImageIO.createImageInputStream(new File(file))) {
+                BufferedImage image = in == null ? null : Compress.readImage(in);
+                if (image == null) {
+                    error = "Compress Error - Invalid input image";
+                } else {
+                    stats.begin("scan");
+                    sequence.addFrame(image, stats);
+                }
+            } catch (IOException e) {
+                error = "Compress Error - Invalid input image";
+            } catch (RuntimeException | OutOfMemoryError | StackOverflowError e) {
+                error = "Input Error - " + e;
+            }
+            stats.finish(error);
+            runs.add(stats);
+            report(stats);
+        }
+
+        try (OutputStream out = new BufferedOutputStream(
+                Files.newOutputStream(Paths.get(output)))) {
+            sequence.write(out);
+        } catch (IOException e) {
+            System.err.println("Input Error - Invalid or missing file");
+            return runs;
+        }
+        System.out.println("Sequence " + output + ": " + sequence.getNumFrames() + " frames, "
+                + sequence.getNumStates() + " states");
+        return runs;
+    }
+
+    /**
+     * Finds the file a sequence is written to
+     *
+     * @param input -> the directory or manifest file of the frames
+     * @return -> "out/<name>_cmp.seq", where name is the name of the directory,
+     *         or of the manifest without its extension
+     */
+    static String sequencePath(File input) {
+        Path path = input.getAbsoluteFile().toPath().normalize().getFileName();
+        String name = path == null ? "sequence" : path.toString();
+        if (input.isFile() && name.lastIndexOf('.') > 0) {
+            name = name.substring(0, name.lastIndexOf('.'));
+        }
+        return "out/" + name + "_cmp" + SequenceCompressor.EXTENSION;
+    }
+
+    /**
+     * Processes the given files on a fixed pool of worker threads, each file
+     * whole
+     * -> prints a status line for every file as soon as it finishes
+     *
+     * @param files        -> the paths of the files to process
+     * @param mode         -> 1 = decompression, 2 = compression
+     * @param wordLen      -> word length to decompress, or -1 for all words
+     * @param multiResMode -> multi-resolution compression method {0,1,2,3}
+     * @param options      -> the command line options
+     * @return -> the statistics of every file, in the order they finished
+     */
+    static List<CompressStats> runPool(List<String> files, int mode, int wordLen,
+            int multiResMode, CompressOptions options) {
+        ExecutorService pool = Executors.newFixedThreadPool(options.getWorkers());
+        CompletionService<CompressStats> done = new ExecutorCompletionService<>(pool);
+        List<CompressStats> runs = new ArrayList<>();
+        try {
+            for (String file : files) {
+                done.submit(() -> process(file, mode, wordLen, multiResMode, options));
+            }
+
+            for (int i = 0; i < files.size(); i++) {
+                CompressStats stats = done.take().get();
+                runs.add(stats);
+                report(stats);
+            }
+            return runs;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return runs;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Prints the status line of a finished file
+     *
+     * @param stats -> the statistics of the file
+     */
+    private static void report(CompressStats stats) {
+        if (stats.getError() == null) {
+            System.out.println("OK " + stats.getFile() + " " + stats.getMillis() + " ms");
+        } else {
+            System.out.println("FAILED " + stats.getFile() + " " + stats.getMillis()
+                    + " ms - " + stats.getError());
+        }
+    }
+
+    /**
+     * Compresses or decompresses one file, catching any error
+     *
+     * @param file         -> path of the file
+     * @param mode         -> 1 = decompression, 2 = compression
+     * @param wordLen      -> word length to decompress, or -1 for all words
+     * @param multiResMode -> multi-resolution compression method {0,1,2,3}
+     * @param options      -> the command line options
+     * @return -> the statistics of the file
+     */
+    private static CompressStats process(String file, int mode, int wordLen, int multiResMode,
+            CompressOptions options) {
+        CompressStats stats = new CompressStats(mode == 1 ? "decompress" : "compress", file);
+        stats.finish(process(file, mode, wordLen, multiResMode, options, stats));
+        return stats;
+    }
+
+    /**
+     * Compresses or decompresses one file through the file-based path of
+     * Compress, catching any error
+     *
+     * @param file         -> path of the file
+     * @param mode         -> 1 = decompression, 2 = compression
+     * @param wordLen      -> word length to decompress, or -1 for all words
+     * @param multiResMode -> multi-resolution compression method {0,1,2,3}
+     * @param options      -> the command line options
+     * @param stats        -> the statistics to record (not finished)
+     * @return -> the error message, or null if the file was processed
+     */
+    static String process(String file, int mode, int wordLen, int multiResMode,
+            CompressOptions options, CompressStats stats) {
+        try {
+            if (mode == 1) {
+                Compress.decompressFile(wordLen, file, options, stats);
+            } else {
+                Compress.compressFile(multiResMode, file, options, stats);
+            }
+        } catch (CompressException e) {
+            return e.getMessage();
+        } catch (RuntimeException | OutOfMemoryError | StackOverflowError e) {
+            return "Input Error - " + e;
+        }
+        return null;
+    }
+}
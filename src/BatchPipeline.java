@@ -0,0 +1,212 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The BatchPipeline class processes the files of a batch in three stages, so
+ * disk and CPU are busy at the same time
+ * -> read: --readers threads load whole input files into memory
+ * -> compute: --workers threads compress the images (or decompress the
+ * automata) in memory, see Compress.compressBytes and
+ * Compress.decompressBytes
+ * -> write: --writers threads store the results in out/
+ * -> the stages are joined by bounded queues of --queue files, so a fast stage
+ * blocks once the next one falls behind and memory use stays bounded
+ * -> a file that cannot be read (or whose output cannot be named) is handed to
+ * the file-based path of Compress, so it fails with the same error as
+ * without the pipeline
+ -> every stage ends its own phases before it hands a file on, so the phases
+ * of a file never include the time it waited in a queue (see CompressStats)
+ */
+public class BatchPipeline {
+
+    /**
+     * One file on its way through the pipeline
+     */
+    private static final class Job {
+        private final String file;
+        private final CompressStats stats;
+        private String output; // path of the result, null to use the file-based path
+        private byte[] data; // the input, then the result
+        private String error;
+
+        private Job(String file, CompressStats stats) {
+            this.file = file;
+            this.stats = stats;
+        }
+    }
+
+    private static final Job END = new Job(null, null); // no more jobs for a stage
+
+    private final List<String> files;
+    private final int mode;
+    private final int wordLen;
+    private final int multiResMode;
+    private final CompressOptions options;
+
+    private final BlockingQueue<Job> loaded;
+    private final BlockingQueue<Job> computed;
+    private final BlockingQueue<CompressStats> done = new LinkedBlockingQueue<>();
+    private final AtomicInteger nextFile = new AtomicInteger();
+    private final AtomicInteger readersLeft;
+    private final AtomicInteger workersLeft;
+    private ExecutorService threads;
+
+    /**
+     * Constructs a new pipeline over the given files
+     *
+     * @param files        -> the paths of the files to process
+     * @param mode         -> 1 = decompression, 2 = compression
+     * @param wordLen      -> word length to decompress, or -1 for all words
+     * @param multiResMode -> multi-resolution compression method {0,1,2,3}
+     * @param options      -> the command line options
+     */
+    public BatchPipeline(List<String> files, int mode, int wordLen, int multiResMode,
+            CompressOptions options) {
+        this.files = files;
+        this.mode = mode;
+        this.wordLen = wordLen;
+        this.multiResMode = multiResMode;
+        this.options = options;
+        this.loaded = new ArrayBlockingQueue<>(options.getQueueSize());
+        this.computed = new ArrayBlockingQueue<>(options.getQueueSize());
+        this.readersLeft = new AtomicInteger(options.getReaders());
+        this.workersLeft = new AtomicInteger(options.getWorkers());
+    }
+
+    /**
+     * Starts the threads of every stage
+     */
+    public void start() {
+        threads = Executors.newFixedThreadPool(options.getReaders() + options.getWorkers()
+                + options.getWriters());
+        for (int i = 0; i < options.getReaders(); i++) {
+            threads.execute(this::read);
+        }
+        for (int i = 0; i < options.getWorkers(); i++) {
+            threads.execute(this::compute);
+        }
+        for (int i = 0; i < options.getWriters(); i++) {
+            threads.execute(this::write);
+        }
+    }
+
+    /**
+     * Waits for the next file to leave the pipeline
+     *
+     * @return -> the statistics of the file, in the order the files finish
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public CompressStats take() throws InterruptedException {
+        return done.take();
+    }
+
+    /**
+     * Stops the threads of every stage, abandoning unfinished files
+     */
+    public void stop() {
+        threads.shutdownNow();
+    }
+
+    /**
+     * Reader stage: loads the input files in order
+     * -> the last reader to finish tells every worker to stop
+     */
+    private void read() {
+        try {
+            for (int i = nextFile.getAndIncrement(); i < files.size();
+                    i = nextFile.getAndIncrement()) {
+                String file = files.get(i);
+                String operation = mode == 1 ? "decompress" : "compress";
+                Job job = new Job(file, new CompressStats(operation, file));
+                try {
+                    job.output = Compress.outputPath(mode, file, options);
+                    job.stats.begin("read");
+                    job.data = Files.readAllBytes(Paths.get(file));
+                    job.stats.end(); // before the job waits in the queue
+                } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                    job = new Job(file, new CompressStats(operation, file));
+                }
+                loaded.put(job);
+            }
+            if (readersLeft.decrementAndGet() == 0) {
+                for (int i = 0; i < options.getWorkers(); i++) {
+                    loaded.put(END);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Compute stage: compresses or decompresses the loaded files
+     * -> the last worker to finish tells every writer to stop
+     */
+    private void compute() {
+        try {
+            for (Job job = loaded.take(); job != END; job = loaded.take()) {
+                if (job.output == null) {
+                    job.error = BatchCompress.process(job.file, mode, wordLen, multiResMode,
+                            options, job.stats);
+                } else {
+                    try {
+                        job.data = mode == 1
+                                ? Compress.decompressBytes(job.data, Compress.extensionOf(job.file),
+                                        wordLen, options, job.stats)
+                                : Compress.compressBytes(job.data, multiResMode, options,
+                                        job.stats);
+                    } catch (CompressException e) {
+                        job.error = e.getMessage();
+                    } catch (RuntimeException | OutOfMemoryError | StackOverflowError e) {
+                        job.error = "Input Error - " + e;
+                    }
+                }
+                job.stats.end(); // a failed file may leave its phase open
+                computed.put(job);
+            }
+            if (workersLeft.decrementAndGet() == 0) {
+                for (int i = 0; i < options.getWriters(); i++) {
+                    computed.put(END);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writer stage: stores the results and finishes the statistics of each file
+     */
+    private void write() {
+        try {
+            for (Job job = computed.take(); job != END; job = computed.take()) {
+                if (job.output != null && job.error == null) {
+                    job.stats.begin("write");
+                    try {
+                        Files.write(Paths.get(job.output), job.data);
+                    } catch (IOException e) {
+                        job.error = "Input Error - Invalid or missing file";
+                    }
+                    job.stats.end();
+                }
+                job.data = null;
+                job.stats.finish(job.error);
+                done.put(job.stats);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
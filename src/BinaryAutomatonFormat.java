@@ -0,0 +1,293 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * Compact, versioned binary container for automata (the "_cmp.bin" format)
+ * -> an alternative to the "si sf symbol" lines of the _cmp.txt format
+ * -> layout:
+ * magic "QTA" + version byte
+ * varint no. of states
+ * (version 2 only) varint width and height of the image, for an image that
+ * does not fill its canvas (see DenseAutomaton.setImageSize)
+ * accept bitmap, one bit per state (LSB first)
+ * for each source state: varint no. of transitions, then one varint per
+ * transition holding (zigzag delta of the destination state << 2) | symbol
+ * -> transitions of a state are sorted by (symbol, destination), and each
+ * destination is stored as the difference to the previous one (starting at
+ * the source state), so most transitions fit in one or two bytes
+ * -> files are read straight from a memory-mapped buffer, without any
+ * intermediate strings or arrays
+ */
+public class BinaryAutomatonFormat {
+    public static final String EXTENSION = ".bin";
+
+    private static final byte[] MAGIC = {'Q', 'T', 'A'};
+    private static final byte VERSION = 1;
+    private static final byte VERSION_SIZED = 2;
+
+    /**
+     * Converter between the text and binary formats
+     * -> <input>_cmp.txt <output>_cmp.bin writes the binary format
+     * -> <input>_cmp.bin <output>_cmp.txt writes the text format
+     *
+     * @param args -> <input file> <output file>
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Input Error - Invalid number of arguments");
+            System.exit(0);
+        }
+
+        try {
+            if (args[0].endsWith(EXTENSION)) {
+                writeText(read(Paths.get(args[0])), args[1]);
+            } else {
+                write(Compress.readAutomaton(args[0]), Paths.get(args[1]));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(0);
+        } catch (CompressException e) {
+            System.err.println(e.getMessage());
+            System.exit(0);
+        } catch (IOException e) {
+            System.err.println("Input Error - Invalid or missing file");
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Writes the given automaton to a file in the binary format
+     *
+     * @param automaton -> the automaton to write
+     * @param path      -> the file to create
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(DenseAutomaton automaton, Path path) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            write(automaton, out);
+        }
+    }
+
+    /**
+     * Writes the given automaton to a stream in the binary format
+     * -> the stream is not closed, so several automata can share one container
+     *
+     * @param automaton -> the automaton to write
+     * @param out       -> the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public static void write(DenseAutomaton automaton, OutputStream out) throws IOException {
+        int numStates = automaton.getNumStates();
+        out.write(MAGIC);
+        out.write(automaton.hasImageSize() ? VERSION_SIZED : VERSION);
+        writeVarint(out, numStates);
+        if (automaton.hasImageSize()) {
+            writeVarint(out, automaton.getImageWidth());
+            writeVarint(out, automaton.getImageHeight());
+        }
+
+        byte[] accept = new byte[(numStates + 7) / 8];
+        for (int state = 0; state < numStates; state++) {
+            if (automaton.isAcceptState(state)) {
+                accept[state >> 3] |= 1 << (state & 7);
+            }
+        }
+        out.write(accept);
+
+        int[] offsets = automaton.offsets();
+        int[] targets = automaton.targets();
+        for (int state = 0; state < numStates; state++) {
+            writeVarint(out, offsets[state * 4 + 4] - offsets[state * 4]);
+
+            // targets are sorted by (symbol, destination)
+            int previous = state;
+            for (int input = 0; input < 4; input++) {
+                for (int i = offsets[state * 4 + input]; i < offsets[state * 4 + input + 1]; i++) {
+                    int delta = targets[i] - previous;
+                    writeVarint(out, ((delta << 1) ^ (delta >> 31)) << 2 | input);
+                    previous = targets[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads an automaton from a file in the binary format
+     * -> the file is memory-mapped and decoded in place
+     *
+     * @param path -> the file to read
+     * @return -> the automaton stored in the file
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid automaton
+     */
+    public static DenseAutomaton read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+            return read(buffer);
+        }
+    }
+
+    /**
+     * Decodes an automaton from the given buffer
+     *
+     * @param buffer -> buffer positioned at the start of the magic bytes
+     * @return -> the automaton stored in the buffer
+     * @throws IllegalArgumentException if the buffer is not a valid automaton
+     */
+    public static DenseAutomaton read(ByteBuffer buffer) {
+        try {
+            for (byte b : MAGIC) {
+                if (buffer.get() != b) {
+                    throw new IllegalArgumentException(
+                            "Decompress Error - Invalid automaton formatting");
+                }
+            }
+            byte version = buffer.get();
+            if (version != VERSION && version != VERSION_SIZED) {
+                throw new IllegalArgumentException(
+                        "Decompress Error - Invalid automaton formatting");
+            }
+
+            int numStates = readVarint(buffer);
+            if (numStates < 1) {
+                throw new IllegalArgumentException(
+                        "Decompress Error - Invalid automaton formatting");
+            }
+            DenseAutomaton automaton = new DenseAutomaton();
+            automaton.addState(numStates - 1);
+            if (version == VERSION_SIZED) {
+                int width = readVarint(buffer);
+                int height = readVarint(buffer);
+                if (width < 1 || height < 1) {
+                    throw new IllegalArgumentException("Decompress Error - Invalid image size");
+                }
+                automaton.setImageSize(width, height);
+            }
+
+            int acceptStart = buffer.position();
+            for (int state = 0; state < numStates; state++) {
+                if ((buffer.get(acceptStart + (state >> 3)) & (1 << (state & 7))) != 0) {
+                    automaton.addAcceptState(state);
+                }
+            }
+            buffer.position(acceptStart + (numStates + 7) / 8);
+
+            for (int state = 0; state < numStates; state++) {
+                int count = readVarint(buffer);
+                int previous = state;
+                for (int i = 0; i < count; i++) {
+                    int value = readVarint(buffer);
+                    int zigzag = value >>> 2;
+                    int next = previous + ((zigzag >>> 1) ^ -(zigzag & 1));
+                    if (next < 0 || next >= numStates) {
+                        throw new IllegalArgumentException(
+                                "Decompress Error - Invalid transition");
+                    }
+                    automaton.addTransition(state, next, value & 3);
+                    previous = next;
+                }
+            }
+            return automaton;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Decompress Error - Invalid automaton formatting");
+        }
+    }
+
+    /**
+     * Checks whether the given file contents start with the magic bytes of a
+     * binary automaton
+     *
+     * @param data -> the contents of a file
+     * @return -> true if the magic bytes match, false otherwise
+     */
+    public static boolean hasMagic(byte[] data) {
+        if (data.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converts the given automaton to the lines of the _cmp.txt format
+     * -> no. of states, accept states, then one "si sf symbol" line per
+     * transition, grouped by source state
+     *
+     * @param automaton -> the automaton to convert
+     * @return -> the lines of the text format
+     */
+    public static List<String> toText(DenseAutomaton automaton) {
+        return automaton.getTransitions(0);
+    }
+
+    /**
+     * Writes the given automaton to a file in the text format
+     *
+     * @param automaton -> the automaton to write
+     * @param filePath  -> the file to create
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeText(DenseAutomaton automaton, String filePath) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
+            for (String line : toText(automaton)) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint (7 bits per byte, high bit = more bytes)
+     *
+     * @param out   -> the stream to write to
+     * @param value -> the value to write
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint
+     *
+     * @param buffer -> the buffer to read from
+     * @return -> the value read
+     */
+    static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Decompress Error - Invalid automaton formatting");
+    }
+}
@@ -1,17 +1,26 @@
 import java.awt.image.BufferedImage;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Scanner;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 
 /**
  * @author 25526693 | CJ TELFER
@@ -24,20 +33,21 @@ import javax.imageio.ImageIO;
  */
 public class Compress {
 
-    private static int accState = 0;
-
     /**
      * Main class for the compression/decompression
      * -> handles input errors
      * -> makes calls to other classes to build the data strcuture and create GUI
      * -> reads from input arguments & creates output files
      * 
-     * @param args -> <GUI mode> <mode> <multi-resolution flag> <filepath/name>
+     * @param args -> [--options] <GUI mode> <mode> <multi-resolution flag>
+     *             <filepath/name>
      */
     public static void main(String[] args) {
         int gui, mode, wordLen;
         String multiRes, filePath;
 
+        CompressOptions options = new CompressOptions(args);
+        args = options.getArguments();
         validateArguments(args);
         gui = Integer.parseInt(args[0]);
         mode = Integer.parseInt(args[1]);
@@ -102,161 +112,527 @@ public class Compress {
         }
 
         if (mode == 1) { // Decompression
-            decompress(gui, wordLen, filePath);
+            decompress(gui, wordLen, filePath, options);
         } else if (mode == 2) { // Compression
-            compressImage(gui, multiResMode, filePath);
+            compressImage(gui, multiResMode, filePath, options);
         }
 
     }
 
     /**
      * Decompress method
-     * -> scans text file
-     * -> handles file formatting errors
-     * -> Builds hashmap using Automaton object
-     * -> Finds valid words to accept states
-     * -> Creates and writes to image
+     * -> reads the automaton from a text (_cmp.txt) or binary (_cmp.bin) file
+     * -> Renders the squares accepted by the automaton into an image
+     * -> Writes the image to file
+     * -> Terminates program with exit error if the file cannot be decompressed
      * 
      * @param gui      -> int value for gui (0 = no gui, 1 = gui active)
      * @param wordLen  -> int value for multires mode
      * @param filePath -> String value for the path and filename of input file
+     * @param options  -> the command line options
      */
-    private static void decompress(int gui, int wordLen, String filePath) {
-        File file = new File(filePath);
-        int numStates = 0;
-        Automaton aut = new Automaton();
+    private static void decompress(int gui, int wordLen, String filePath,
+            CompressOptions options) {
+        CompressStats stats = new CompressStats("decompress", filePath);
+        String error = null;
+        try {
+            decompressFile(wordLen, filePath, options, stats);
+        } catch (CompressException e) {
+            error = e.getMessage();
+        }
+        finish(stats, error, options);
+    }
 
+    /**
+     * Decompresses one automaton file into "out/<name>_dec.png", recording the
+     * read, minimise, render and write phases
+     * -> reads the automaton from a text (_cmp.txt) or binary (_cmp.bin) file
+     * -> minimises the automaton before rendering it (see AutomatonMinimiser)
+     * -> Renders the squares accepted by the automaton into an image, copying
+     * repeated tiles through a cache bounded by the --tile-cache option
+     * -> With the --region option only that window of the image is rendered
+     * -> Writes the image as a 1-bit PNG file at the --deflate level
+     * 
+     * @param wordLen  -> word length to render, or -1 for the longest word
+     * @param filePath -> String value for the path and filename of input file
+     * @param options  -> the command line options
+     * @param stats    -> the statistics to record
+     * @throws CompressException if the file cannot be read, rendered or written
+     */
+    static void decompressFile(int wordLen, String filePath, CompressOptions options,
+            CompressStats stats) throws CompressException {
+        if (filePath.endsWith(GrayscaleCompressor.EXTENSION)) {
+            decompressGray(wordLen, filePath, options, stats);
+            return;
+        }
+        if (filePath.endsWith(SequenceCompressor.EXTENSION)) {
+            decompressSequence(wordLen, filePath, options, stats);
+            return;
+        }
+
+        stats.begin("read");
+        DenseAutomaton aut;
+        String extension = ".txt";
+        if (filePath.endsWith(BinaryAutomatonFormat.EXTENSION)) {
+            extension = BinaryAutomatonFormat.EXTENSION;
+            aut = readBinaryAutomaton(filePath);
+        } else {
+            aut = readAutomaton(filePath);
+        }
+        stats.set(CompressStats.Counter.INPUT_BYTES, new File(filePath).length());
+        aut = minimise(aut, filePath, options, stats);
+
+        filePath = filePath.substring(filePath.lastIndexOf("/"),
+                filePath.indexOf(extension));
+
+        if (options.isProgressive()) {
+            decompressProgressive(aut, wordLen, filePath, options, stats);
+            return;
+        }
+        BufferedImage image = render(aut, wordLen, options, stats);
+
+        // Save the image as a PNG file
+        stats.begin("write");
+        File output = new File("out/" + filePath + "_dec.png");
         try {
-            Scanner sc = new Scanner(file);
-            String line = sc.nextLine();
+            PngWriter.write(image, output, options.getDeflateLevel());
+        } catch (IOException e) {
+            throw new CompressException("Input Error - Invalid or missing file");
+        }
+        stats.end();
+    }
+
+    /**
+     * Decompresses one automaton held in memory into a PNG file, without
+     * touching the file system (see CompressServer)
+     * -> the format is found from the magic bytes: a grayscale container
+     * ("QTG"), a sequence container ("QTS", of which the --frame option picks
+     * the frame), a binary automaton ("QTA"), or else a text automaton
+     * -> minimises and renders the automaton as decompressFile does; the
+     * --progressive option is not supported
+     * 
+     * @param data    -> the contents of the automaton file
+     * @param wordLen -> word length to render, or -1 for the longest word
+     * @param options -> the options of the request
+     * @param stats   -> the statistics to record
+     * @return -> the bytes of the PNG file
+     * @throws CompressException if the automaton cannot be read or rendered
+     */
+    static byte[] decompressBytes(byte[] data, int wordLen, CompressOptions options,
+            CompressStats stats) throws CompressException {
+        String extension = ".txt";
+        if (GrayscaleCompressor.hasMagic(data)) {
+            extension = GrayscaleCompressor.EXTENSION;
+        } else if (SequenceCompressor.hasMagic(data)) {
+            extension = SequenceCompressor.EXTENSION;
+        } else if (BinaryAutomatonFormat.hasMagic(data)) {
+            extension = BinaryAutomatonFormat.EXTENSION;
+        }
+        return decompressBytes(data, extension, wordLen, options, stats);
+    }
+
+    /**
+     * Decompresses one automaton held in memory into a PNG file, reading it in
+     * the format of the given file extension (see decompressFile)
+     * 
+     * @param data      -> the contents of the automaton file
+     * @param extension -> extension of the file the data was read from
+     * @param wordLen   -> word length to render, or -1 for the longest word
+     * @param options   -> the command line options
+     * @param stats     -> the statistics to record
+     * @return -> the bytes of the PNG file
+     * @throws CompressException if the automaton cannot be read or rendered
+     */
+    static byte[] decompressBytes(byte[] data, String extension, int wordLen,
+            CompressOptions options, CompressStats stats) throws CompressException {
+        if (options.isProgressive()) {
+            throw new CompressException("Input Error - Invalid option");
+        }
+
+        BufferedImage image;
+        if (extension.equals(GrayscaleCompressor.EXTENSION)) {
+            if (wordLen > 0) {
+                throw new CompressException("Decompress Error - Invalid word length");
+            }
             try {
-                numStates = Integer.parseInt(line);
-            } catch (NumberFormatException e) {
-                System.err.println("Decompress Error - Invalid automaton formatting");
-                System.exit(0);
+                image = GrayscaleCompressor.decompress(ByteBuffer.wrap(data),
+                        options.getWorkers(), stats);
+            } catch (IllegalArgumentException e) {
+                throw new CompressException(e.getMessage());
             }
-            for (int i = 1; i < numStates; i++) {
-                aut.addState(i);
+        } else if (extension.equals(SequenceCompressor.EXTENSION)) {
+            if (options.getFrame() < 0) {
+                throw new CompressException("Decompress Error - Invalid frame");
             }
-
-            line = sc.nextLine();
-            Scanner scLine = new Scanner(line);
-            while (scLine.hasNext()) {
-                String num = scLine.next();
-                try {
-                    if (Integer.parseInt(num) < numStates) {
-                        aut.addAcceptState(Integer.parseInt(num));
-                    } else {
-                        System.err.println("Decompress Error - Invalid accept state");
-                        System.exit(0);
-                    }
-                } catch (NumberFormatException e) {
-                    System.err.println("Decompress Error - Invalid automaton formatting");
-                    System.exit(0);
-                }
+            stats.begin("read");
+            stats.set(CompressStats.Counter.INPUT_BYTES, data.length);
+            image = render(readFrame(ByteBuffer.wrap(data), options.getFrame(), stats), wordLen,
+                    options, stats);
+        } else {
+            stats.begin("read");
+            DenseAutomaton aut;
+            try {
+                aut = extension.equals(BinaryAutomatonFormat.EXTENSION)
+                        ? BinaryAutomatonFormat.read(ByteBuffer.wrap(data))
+                        : TextAutomatonParser.read(data);
+            } catch (IllegalArgumentException e) {
+                throw new CompressException(e.getMessage());
             }
-            scLine.close();
-            while (sc.hasNextLine()) {
-                int si, sf, next, symbol, lineCount;
-
-                si = 0;
-                sf = 0;
-                next = 0;
-                symbol = 0;
-
-                lineCount = 0;
-                line = sc.nextLine();
-                scLine = new Scanner(line);
-                while (scLine.hasNext()) {
-                    try {
-                        next = Integer.parseInt(scLine.next());
-                    } catch (NumberFormatException e) {
-                        System.err.println("Decompress Error - Invalid automaton formatting");
-                        System.exit(0);
-                    }
-                    lineCount++;
-                    switch (lineCount) {
-                        case 1:
-                            si = next;
-                            if (si > numStates - 1) {
-                                System.err.println("Decompress Error - Invalid transition");
-                                System.exit(0);
-                            }
-                            break;
-                        case 2:
-                            sf = next;
-                            if (sf > numStates - 1) {
-                                System.err.println("Decompress Error - Invalid transition");
-                                System.exit(0);
-                            }
-                            break;
-                        case 3:
-                            symbol = next;
-                            if (symbol < 0 || symbol > 3) {
-                                System.err.println("Decompress Error - Invalid transition");
-                                System.exit(0);
-                            }
-                            break;
-                        default:
-                            System.err.println("Decompress Error - Invalid automaton formatting");
-                    }
-                }
-                aut.addTransition(si, sf, symbol);
-                scLine.close();
+            stats.set(CompressStats.Counter.INPUT_BYTES, data.length);
+            aut = minimise(aut, stats.getFile(), options, stats);
+            image = render(aut, wordLen, options, stats);
+        }
+
+        stats.begin("write");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            PngWriter.write(image, out, options.getDeflateLevel());
+        } catch (IOException e) {
+            throw new CompressException("Input Error - Invalid or missing file");
+        }
+        stats.end();
+        return out.toByteArray();
+    }
+
+    /**
+     * Finds the file the command line tools write the result for the given
+     * input to
+     * 
+     * @param mode     -> 1 = decompression, 2 = compression
+     * @param filePath -> path of the input file
+     * @param options  -> the command line options
+     * @return -> "out/<name>_cmp.txt" or "out/<name>_cmp.gray" for an image,
+     *         "out/<name>_dec.png" for an automaton
+     * @throws IndexOutOfBoundsException if the path has no "/" or misses the
+     *                                   extension its name is cut at
+     */
+    static String outputPath(int mode, String filePath, CompressOptions options) {
+        if (mode == 2) {
+            String name = filePath.substring(filePath.lastIndexOf("/"), filePath.indexOf(".png"));
+            return "out/" + name + (options.isGray() ? "_cmp" + GrayscaleCompressor.EXTENSION
+                    : "_cmp.txt");
+        }
+        String extension = extensionOf(filePath);
+        return "out/" + filePath.substring(filePath.lastIndexOf("/"), filePath.indexOf(extension))
+                + "_dec.png";
+    }
+
+    /**
+     * Finds the automaton format of a file from its extension
+     * 
+     * @param filePath -> path of the automaton file
+     * @return -> ".gray", ".seq", ".bin", or ".txt" for any other file
+     */
+    static String extensionOf(String filePath) {
+        if (filePath.endsWith(GrayscaleCompressor.EXTENSION)) {
+            return GrayscaleCompressor.EXTENSION;
+        }
+        if (filePath.endsWith(SequenceCompressor.EXTENSION)) {
+            return SequenceCompressor.EXTENSION;
+        }
+        return filePath.endsWith(BinaryAutomatonFormat.EXTENSION) ? BinaryAutomatonFormat.EXTENSION
+                : ".txt";
+    }
+
+    /**
+     * Minimises a loaded automaton before it is rendered, as smaller automata
+     * render faster
+     * 
+     * @param aut     -> the automaton as it was read
+     * @param name    -> name of the input, for the --minimise report
+     * @param options -> the command line options
+     * @param stats   -> the statistics to record
+     * @return -> the minimal automaton
+     */
+    private static DenseAutomaton minimise(DenseAutomaton aut, String name,
+            CompressOptions options, CompressStats stats) {
+        stats.set(CompressStats.Counter.STATES, aut.getNumStates());
+        stats.set(CompressStats.Counter.TRANSITIONS, aut.getNumTransitions());
+
+        stats.begin("minimise");
+        int loaded = aut.getNumStates();
+        aut = AutomatonMinimiser.minimise(aut);
+        stats.set(CompressStats.Counter.MINIMISED_STATES, aut.getNumStates());
+        if (options.isMinimise()) {
+            reportStates(name, loaded, aut.getNumStates());
+        }
+        return aut;
+    }
+
+    /**
+     * Renders the accepted squares of an automaton straight into an image
+     * -> With the --region option only that window of the image is rendered
+     * 
+     * @param aut     -> the automaton to render
+     * @param wordLen -> word length to render, or -1 for the longest word
+     * @param options -> the command line options
+     * @param stats   -> the statistics to record
+     * @return -> the rendered image
+     * @throws CompressException if the automaton or region cannot be rendered
+     */
+    private static BufferedImage render(DenseAutomaton aut, int wordLen, CompressOptions options,
+            CompressStats stats) throws CompressException {
+        stats.begin("render");
+        try {
+            AutomatonRenderer renderer = new AutomatonRenderer(aut);
+            renderer.setCacheSize(options.getTileCacheBytes());
+            int[] region = options.getRegion();
+            BufferedImage image;
+            if (region == null) {
+                image = renderer.render(wordLen);
+            } else {
+                image = renderer.renderRegion(region[0], region[1], region[2], region[3], wordLen);
             }
-            sc.close();
+            stats.set(CompressStats.Counter.PIXELS, renderer.getPixelsWritten());
+            stats.set(CompressStats.Counter.TILE_HITS, renderer.getCacheHits());
+            stats.set(CompressStats.Counter.TILE_MISSES, renderer.getCacheMisses());
+            return image;
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            throw new CompressException(e.getMessage());
+        }
+    }
 
-            aut.getTransitions(0);
+    /**
+     * Decompresses a grayscale container into "out/<name>_dec.png"
+     * -> the bit planes are decoded --workers at a time
+     * 
+     * @param wordLen  -> word length to render, must be -1 (the planes are
+     *                 always rendered at full size)
+     * @param filePath -> String value for the path and filename of input file
+     * @param options  -> the command line options
+     * @param stats    -> the statistics to record
+     * @throws CompressException if the file cannot be read, rendered or written
+     */
+    private static void decompressGray(int wordLen, String filePath, CompressOptions options,
+            CompressStats stats) throws CompressException {
+        if (wordLen > 0) {
+            throw new CompressException("Decompress Error - Invalid word length");
+        }
+        BufferedImage image;
+        try {
+            image = GrayscaleCompressor.decompress(Paths.get(filePath), options.getWorkers(),
+                    stats);
+        } catch (IllegalArgumentException e) {
+            throw new CompressException(e.getMessage());
+        } catch (IOException e) {
+            throw new CompressException("Input Error - Invalid or missing file");
+        }
 
-            List<String> words = aut.findWords(wordLen);
-            filePath = filePath.substring(filePath.lastIndexOf("/"),
-                    filePath.indexOf(".txt"));
+        stats.begin("write");
+        String name = filePath.substring(filePath.lastIndexOf("/"),
+                filePath.indexOf(GrayscaleCompressor.EXTENSION));
+        try {
+            PngWriter.write(image, new File("out/" + name + "_dec.png"),
+                    options.getDeflateLevel());
+        } catch (IOException e) {
+            throw new CompressException("Input Error - Invalid or missing file");
+        }
+        stats.end();
+    }
 
-            int size = 0;
-            int maxLen = 0;
-            for (int i = 0; i < words.size(); i++) {
-                if (words.get(i).length() > maxLen) {
-                    maxLen = words.get(i).length();
-                }
+    /**
+     * Decompresses the frames of a sequence container
+     * -> with the --frame option only that frame is decoded, into
+     * "out/<name>_dec.png", reading only the states stored up to it
+     * -> otherwise every frame n is decoded into "out/<name>_<n>_dec.png"
+     * 
+     * @param wordLen  -> word length to render, or -1 for the longest word
+     * @param filePath -> String value for the path and filename of input file
+     * @param options  -> the command line options
+     * @param stats    -> the statistics to record
+     * @throws CompressException if the file cannot be read, rendered or written
+     */
+    private static void decompressSequence(int wordLen, String filePath,
+            CompressOptions options, CompressStats stats) throws CompressException {
+        if (options.isProgressive()) {
+            throw new CompressException("Input Error - Invalid option");
+        }
+        stats.begin("read");
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(Paths.get(filePath)));
+        } catch (IOException e) {
+            throw new CompressException("Input Error - Invalid or missing file");
+        }
+        stats.set(CompressStats.Counter.INPUT_BYTES, buffer.capacity());
+
+        String name = filePath.substring(filePath.lastIndexOf("/"),
+                filePath.indexOf(SequenceCompressor.EXTENSION));
+        int first = options.getFrame();
+        int last = first;
+        if (first < 0) {
+            try {
+                first = 0;
+                last = SequenceCompressor.countFrames(buffer) - 1;
+            } catch (IllegalArgumentException e) {
+                throw new CompressException(e.getMessage());
             }
-            size = (int) Math.pow(2.0, maxLen);
-            if (size <= 0) {
-                size = 1;
+        }
+
+        for (int frame = first; frame <= last; frame++) {
+            stats.begin("read");
+            BufferedImage image = render(readFrame(buffer, frame, stats), wordLen, options,
+                    stats);
+
+            stats.begin("write");
+            String suffix = options.getFrame() < 0 ? "_" + frame + "_dec.png" : "_dec.png";
+            try {
+                PngWriter.write(image, new File("out/" + name + suffix),
+                        options.getDeflateLevel());
+            } catch (IOException e) {
+                throw new CompressException("Input Error - Invalid or missing file");
             }
-            if (wordLen > 0) {
-                size = (int) Math.pow(2.0, wordLen);
+        }
+        stats.end();
+    }
+
+    /**
+     * Reads the automaton of one frame of a sequence container
+     * -> the automaton is minimal by construction, so it is not minimised again
+     * 
+     * @param buffer -> the contents of the container
+     * @param frame  -> index of the frame, from 0
+     * @param stats  -> the statistics to record
+     * @return -> the automaton of the frame
+     * @throws CompressException if the frame does not exist or the container is
+     *                           not valid
+     */
+    private static DenseAutomaton readFrame(ByteBuffer buffer, int frame, CompressStats stats)
+            throws CompressException {
+        DenseAutomaton aut;
+        try {
+            aut = SequenceCompressor.readFrame(buffer, frame);
+        } catch (IllegalArgumentException e) {
+            throw new CompressException(e.getMessage());
+        }
+        stats.add(CompressStats.Counter.STATES, aut.getNumStates());
+        stats.add(CompressStats.Counter.TRANSITIONS, aut.getNumTransitions());
+        return aut;
+    }
+
+    /**
+     * Decompresses an automaton one level of detail at a time
+     * -> writes the image of every level below the last as
+     * "out/<name>_dec_<depth>.png" as soon as it is complete, and the last
+     * level as "out/<name>_dec.png"
+     * 
+     * @param aut      -> the automaton to decompress
+     * @param wordLen  -> word length to render, or -1 for the longest word
+     * @param name     -> name of the output files, from the input file
+     * @param options  -> the command line options
+     * @param stats    -> the statistics to record
+     * @throws CompressException if the automaton cannot be rendered or an image
+     *                           cannot be written
+     */
+    private static void decompressProgressive(DenseAutomaton aut, int wordLen, String name,
+            CompressOptions options, CompressStats stats) throws CompressException {
+        stats.begin("render");
+        ProgressiveRenderer renderer;
+        try {
+            renderer = new ProgressiveRenderer(aut, wordLen);
+        } catch (IllegalStateException e) {
+            throw new CompressException(e.getMessage());
+        }
+
+        BufferedImage image = null;
+        do {
+            if (renderer.hasNextLevel()) {
+                stats.begin("render");
+                image = renderer.nextLevel();
+            } else {
+                // the image is a single pixel
+                image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+                image.setRGB(0, 0, aut.isAcceptState(0) ? 0 : 0xFFFFFF);
             }
-            // Create image and set all pixels to white
-            BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
-            int white = 0xFFFFFF;
-            for (int y = 0; y < size; y++) {
-                for (int x = 0; x < size; x++) {
-                    image.setRGB(x, y, white);
-                }
+
+            stats.begin("write");
+            String suffix = renderer.hasNextLevel() ? "_dec_" + renderer.getDepth() : "_dec";
+            try {
+                PngWriter.write(image, new File("out/" + name + suffix + ".png"),
+                        options.getDeflateLevel());
+            } catch (IOException e) {
+                throw new CompressException("Input Error - Invalid or missing file");
             }
+        } while (renderer.hasNextLevel());
+        stats.end();
 
-            // Sets coordinates on image to black from list of found words
-            // to accept states
-            for (int i = 0; i < words.size(); i++) {
-                set(getCoordinates(words.get(i), size), image);
+        // the level may be cropped out of a larger canvas
+        long black = 0;
+        int[] row = new int[image.getWidth()];
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, row.length, 1, row, 0, row.length);
+            for (int pixel : row) {
+                if ((pixel & 0xFFFFFF) == 0) {
+                    black++;
+                }
             }
+        }
+        stats.set(CompressStats.Counter.PIXELS, black);
+    }
 
-            // Save the image as a PNG file
-            File output = new File("out/" + filePath + "_dec.png");
+    /**
+     * Finishes the statistics of a run and writes them to the --stats file, if
+     * one was given
+     * -> Terminates program with exit error if the run failed
+     * 
+     * @param stats   -> the statistics of the run
+     * @param error   -> the error message if the run failed, null otherwise
+     * @param options -> the command line options
+     */
+    private static void finish(CompressStats stats, String error, CompressOptions options) {
+        stats.finish(error);
+        if (options.getStatsFile() != null) {
             try {
-                ImageIO.write(image, "png", output);
+                CompressStats.writeJson(List.of(stats), options.getStatsFile());
             } catch (IOException e) {
                 System.err.println("Input Error - Invalid or missing file");
             }
-        } catch (FileNotFoundException e) {
-            System.err.println("Input Error - Invalid or missing file");
+        }
+        if (error != null) {
+            System.err.println(error);
             System.exit(0);
         }
     }
 
+    /**
+     * Reads an automaton from a text (_cmp.txt) file
+     * -> handles file formatting errors (see TextAutomatonParser)
+     * 
+     * @param filePath -> String value for the path and filename of input file
+     * @return -> the automaton described by the file
+     * @throws CompressException if the file is missing or badly formatted
+     */
+    static DenseAutomaton readAutomaton(String filePath) throws CompressException {
+        try {
+            return TextAutomatonParser.read(new File(filePath).toPath());
+        } catch (IllegalArgumentException e) {
+            throw new CompressException(e.getMessage());
+        } catch (IOException e) {
+            throw new CompressException("Input Error - Invalid or missing file");
+        }
+    }
+
+    /**
+     * Reads an automaton from a binary (_cmp.bin) file
+     * -> handles file formatting errors
+     * 
+     * @param filePath -> String value for the path and filename of input file
+     * @return -> the automaton described by the file
+     * @throws CompressException if the file is missing or badly formatted
+     */
+    static DenseAutomaton readBinaryAutomaton(String filePath) throws CompressException {
+        try {
+            return BinaryAutomatonFormat.read(new File(filePath).toPath());
+        } catch (IllegalArgumentException e) {
+            throw new CompressException(e.getMessage());
+        } catch (IOException e) {
+            throw new CompressException("Input Error - Invalid or missing file");
+        }
+    }
+
     /**
      * Main compression method
-     * -> Makes calls to buildDFA, findWordsToBlack and writeToFile
+     * -> Makes calls to buildDFA, QuadtreeScanner and writeToFile
      * -> Opens image from filepath and handles errors
      * -> Finds all black quadrants and the words describing the addresses
      * -> Builds DFA
@@ -267,89 +643,438 @@ public class Compress {
      * @param filePath     -> String for filepath to the image to be compressed
      */
     public static void compressImage(int gui, int multiResMode, String filePath) {
+        compressImage(gui, multiResMode, filePath, new CompressOptions());
+    }
+
+    /**
+     * Main compression method, with the given command line options
+     * -> With a tile size, the image is streamed through TiledCompressor one
+     * row of tiles at a time instead of being read into memory whole
+     * -> With more than one thread, the image is scanned on a ForkJoinPool
+     * 
+     * @param gui          -> Int for gui mode (0 = off, 1 = on)
+     * @param multiResMode -> value for multi-res ciompression mode {1,2,3}
+     * @param filePath     -> String for filepath to the image to be compressed
+     * @param options      -> the command line options
+     */
+    public static void compressImage(int gui, int multiResMode, String filePath,
+            CompressOptions options) {
+        CompressStats stats = new CompressStats("compress", filePath);
+        String error = null;
         try {
-            File imageFile = new File(filePath);
-            BufferedImage image = ImageIO.read(imageFile);
+            compressFile(multiResMode, filePath, options, stats);
+        } catch (CompressException e) {
+            error = e.getMessage();
+        }
+        finish(stats, error, options);
+    }
 
-            int width = image.getWidth();
-            int height = image.getHeight();
+    /**
+     * Compresses one image into "out/<name>_cmp.txt", recording the read,
+     * scan, dfa and write phases
+     * -> an image that is not a square whose width is a power of two is
+     * scanned as the corner of a white canvas (see canvasSize), and its true
+     * width and height are written after the no. of states
+     * -> With the --minimise option the automaton (including the transitions
+     * added for multi-resolution) is minimised before it is written
+     * 
+     * @param multiResMode -> value for multi-res compression mode {1,2,3}
+     * @param filePath     -> String for filepath to the image to be compressed
+     * @param options      -> the command line options
+     * @param stats        -> the statistics to record
+     * @throws CompressException if the image cannot be read, compressed or
+     *                           written
+     */
+    static void compressFile(int multiResMode, String filePath, CompressOptions options,
+            CompressStats stats) throws CompressException {
+        if (options.isGray()) {
+            compressGray(multiResMode, filePath, options, stats);
+            return;
+        }
 
-            if (width != height) {
-                System.err.println("Compress Error - Invalid input image");
-                System.exit(0);
+        List<String> output;
+        try (ImageInputStream in = ImageIO.createImageInputStream(new File(filePath))) {
+            if (in == null) {
+                throw new CompressException("Compress Error - Invalid input image");
             }
+            output = compressLines(in, multiResMode, filePath, options, stats);
+        } catch (IOException e) {
+            throw new CompressException("Compress Error - Invalid input image");
+        }
 
-            FindWordsToBlack language = new FindWordsToBlack();
-            int size = width;
-            int maxlen = 0;
-            while (size >= 2) {
-                size = size / 2;
-                maxlen++;
-            }
-            List<String> words = language.process(image, maxlen);
-
-            List<String> output = buildDFA(words, multiResMode);
-
-            if (multiResMode == 1) {
-
-                int[] count = {0, 0, 0, 0};
-                for (int i = 0; i < words.size(); i++) {
-                    int quadrant = Integer.parseInt(words.get(i).charAt(0) + "");
-                    switch (quadrant) {
-                        case 0:
-                            count[0]++;
-                            break;
-                        case 1:
-                            count[1]++;
-                            break;
-                        case 2:
-                            count[2]++;
-                            break;
-                        case 3:
-                            count[3]++;
-                            break;
-                        default:
-                            break;
-                    }
-                }
-                for (int i = 0; i < count.length; i++) {
-                    System.out.println("Quadrant " + i + " :" + count[i]);
-                }
+        stats.begin("write");
+        try {
+            writeTransitions(output, filePath);
+        } catch (IOException e) {
+            throw new CompressException("Input Error - Invalid or missing file");
+        }
+        stats.end();
+    }
 
-                int max = 999999;
-                List<Integer> whiteQuadrants = new ArrayList<>();
-                for (int i = 0; i < count.length; i++) {
-                    if (count[i] <= max) {
-                        max = count[i];
-                    }
+    /**
+     * Compresses the image read from the given stream into the lines of the
+     * _cmp.txt format, recording the read, scan, dfa and minimise phases
+     * -> With a tile size, the image is streamed through TiledCompressor one
+     * row of tiles at a time instead of being read into memory whole
+     * -> With more than one thread, the image is scanned on a ForkJoinPool
+     * -> With a cache directory, an image whose black pixels were compressed
+     * before is not scanned again: its lines are read from the cache (see
+     * AutomatonCache), and the --minimise report is not printed for it
+     * 
+     * @param in           -> the stream holding the encoded image (not closed)
+     * @param multiResMode -> value for multi-res compression mode {1,2,3}
+     * @param name         -> name of the image, for the --minimise report
+     * @param options      -> the command line options
+     * @param stats        -> the statistics to record
+     * @return -> the no. of states (and image size), accept states, and all
+     *         transitions between states
+     * @throws CompressException if the image cannot be decoded or compressed
+     * @throws IOException       if the stream cannot be read
+     */
+    static List<String> compressLines(ImageInputStream in, int multiResMode, String name,
+            CompressOptions options, CompressStats stats) throws CompressException, IOException {
+        List<String> output;
+        AutomatonCache cache = openCache(options);
+        String key = null;
+        try {
+            NodeTable table = new NodeTable();
+            int root;
+            int[] size = new int[2]; // {width, height} of the image
+
+            if (options.getTileSize() > 0) {
+                stats.begin("scan"); // reading and scanning are interleaved
+                root = TiledCompressor.buildTree(in, table, options.getTileSize(), stats, size);
+            } else {
+                stats.begin("read");
+                BufferedImage image = readImage(in);
+                if (image == null) {
+                    throw new CompressException("Compress Error - Invalid input image");
                 }
-                for (int i = 0; i < count.length; i++) {
-                    if (count[i] == max) {
-                        whiteQuadrants.add(i);
+                size[0] = image.getWidth();
+                size[1] = image.getHeight();
+                int width = canvasSize(size[0], size[1]);
+                stats.set(CompressStats.Counter.PIXELS, (long) size[0] * size[1]);
+
+                if (cache != null) {
+                    stats.begin("cache");
+                    key = AutomatonCache.key(image, multiResMode, options.isMinimise());
+                    List<String> cached = cache.get(key);
+                    if (cached != null) {
+                        stats.set(CompressStats.Counter.CACHE_HITS, 1);
+                        stats.end();
+                        return cached;
                     }
+                    stats.set(CompressStats.Counter.CACHE_MISSES, 1);
                 }
-                int min = 999999;
-                for (int i = 0; i < whiteQuadrants.size(); i++) {
-                    if (whiteQuadrants.get(i) < min) {
-                        min = whiteQuadrants.get(i);
+
+                QuadtreeScanner language;
+                if (options.getThreads() > 1) {
+                    ForkJoinPool pool = new ForkJoinPool(options.getThreads());
+                    try {
+                        stats.begin("table");
+                        language = new QuadtreeScanner(image, pool);
+                        stats.begin("scan");
+                        root = language.buildTree(table, maxWordLength(width), pool,
+                                options.getCutoffDepth());
+                    } finally {
+                        pool.shutdown();
                     }
+                } else {
+                    stats.begin("table");
+                    language = new QuadtreeScanner(image);
+                    stats.begin("scan");
+                    root = language.buildTree(table, maxWordLength(width));
                 }
-                int whiteQuadrant = min;
-                System.out.println("WHITE: " + whiteQuadrant + " " + accState);
+                stats.add(CompressStats.Counter.NODES_VISITED, language.getNodesVisited());
+            }
 
-                for (int i = 0; i < 4; i++) {
-                    if (i != whiteQuadrant) {
-                        output.add(accState + " " + accState + " " + i);
-                    }
+            stats.begin("dfa");
+            QuadtreeDfa dfa = QuadtreeDfa.fromTree(table, root);
+            output = buildTransitions(dfa, multiResMode);
+            if (needsImageSize(size[0], size[1])) {
+                output.set(0, output.get(0) + " " + size[0] + " " + size[1]);
+            }
+            if (options.isMinimise()) {
+                stats.begin("minimise");
+                DenseAutomaton minimal = AutomatonMinimiser.minimise(
+                        DenseAutomaton.fromTransitions(output));
+                stats.set(CompressStats.Counter.MINIMISED_STATES, minimal.getNumStates());
+                reportStates(name, dfa.getNumStates(), minimal.getNumStates());
+                output = minimal.getTransitions(0);
+            }
+            if (cache != null) {
+                stats.begin("cache");
+                cache.put(key, output);
+            }
+            stats.end();
+            stats.set(CompressStats.Counter.NODES, table.size());
+            stats.set(CompressStats.Counter.WORDS, dfa.countWords(0));
+            stats.set(CompressStats.Counter.STATES, dfa.getNumStates());
+            stats.set(CompressStats.Counter.TRANSITIONS, dfa.getNumTransitions());
+        } catch (IllegalArgumentException e) {
+            throw new CompressException(e.getMessage());
+        }
+        return output;
+
+    }
+
+    /**
+     * Compresses one image held in memory, without touching the file system
+     * (see CompressServer)
+     * -> returns the contents of the "_cmp.txt" file compressFile would write,
+     * or with the --gray option of the "_cmp.gray" container
+     * 
+     * @param data         -> the contents of the image file
+     * @param multiResMode -> value for multi-res compression mode {1,2,3}
+     * @param options      -> the options of the request
+     * @param stats        -> the statistics to record
+     * @return -> the bytes of the compressed file
+     * @throws CompressException if the image cannot be decoded or compressed
+     */
+    static byte[] compressBytes(byte[] data, int multiResMode, CompressOptions options,
+            CompressStats stats) throws CompressException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageInputStream in = new MemoryCacheImageInputStream(
+                new ByteArrayInputStream(data))) {
+            if (options.isGray()) {
+                if (multiResMode != 0) {
+                    throw new CompressException("Compress Error - Invalid multi-resolution method");
+                }
+                stats.begin("read");
+                BufferedImage image = readImage(in);
+                if (image == null) {
+                    throw new CompressException("Compress Error - Invalid input image");
+                }
+                try {
+                    GrayscaleCompressor.compress(image, out, options.getWorkers(), stats);
+                } catch (OutOfMemoryError e) {
+                    throw new CompressException("Compress Error - Insufficient memory");
                 }
+                return out.toByteArray();
+            }
 
+            List<String> output = compressLines(in, multiResMode, stats.getFile(), options,
+                    stats);
+            stats.begin("write");
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(out))) {
+                for (String line : output) {
+                    writer.write(line);
+                    writer.write(System.lineSeparator());
+                }
             }
-            writeWordsToFile(output, filePath);
+            stats.end();
+            return out.toByteArray();
+        } catch (IllegalArgumentException e) {
+            throw new CompressException(e.getMessage());
+        } catch (IOException e) {
+            throw new CompressException("Compress Error - Invalid input image");
+        }
+    }
 
+    /**
+     * Opens the automaton cache of the given options
+     * 
+     * @param options -> the command line options
+     * @return -> the cache, or null if compression is not cached
+     * @throws CompressException if the cache directory cannot be opened
+     */
+    private static AutomatonCache openCache(CompressOptions options) throws CompressException {
+        if (options.getCacheDir() == null) {
+            return null;
+        }
+        try {
+            return AutomatonCache.open(Paths.get(options.getCacheDir()),
+                    options.getCacheBytes());
+        } catch (IOException | InvalidPathException e) {
+            throw new CompressException("Input Error - Invalid or missing file");
+        }
+    }
+
+    /**
+     * Decodes the image read from the given stream, as ImageIO.read does,
+     * without closing the stream
+     * 
+     * @param in -> the stream holding the encoded image
+     * @return -> the image, or null if no reader can decode it
+     * @throws IOException if the stream cannot be read
+     */
+    static BufferedImage readImage(ImageInputStream in) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(in, true, true);
+            return reader.read(0, reader.getDefaultReadParam());
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Compresses one grayscale image into "out/<name>_cmp.gray"
+     * -> the bit planes are compressed --workers at a time
+     * -> the file is only written once every plane is compressed, so a failed
+     * compression (e.g. running out of memory) leaves no file behind
+     * 
+     * @param multiResMode -> multi-resolution mode, must be 0 (not supported for
+     *                     grayscale images)
+     * @param filePath     -> filepath of image to be compressed
+     * @param options      -> the command line options
+     * @param stats        -> the statistics to record
+     * @throws CompressException if the image cannot be read, compressed or
+     *                           written
+     */
+    private static void compressGray(int multiResMode, String filePath, CompressOptions options,
+            CompressStats stats) throws CompressException {
+        if (multiResMode != 0) {
+            throw new CompressException("Compress Error - Invalid multi-resolution method");
+        }
+        stats.begin("read");
+        BufferedImage image;
+        try (ImageInputStream in = ImageIO.createImageInputStream(new File(filePath))) {
+            image = in == null ? null : readImage(in);
         } catch (IOException e) {
-            System.err.println("Compress Error - Invalid input image");
-            System.exit(0);
+            throw new CompressException("Compress Error - Invalid input image");
+        }
+        if (image == null) {
+            throw new CompressException("Compress Error - Invalid input image");
+        }
+
+        String name = filePath.substring(filePath.lastIndexOf("/"), filePath.indexOf(".png"));
+        try {
+            GrayscaleCompressor.compress(image, Paths.get("out/" + name + "_cmp"
+                    + GrayscaleCompressor.EXTENSION), options.getWorkers(), stats);
+        } catch (IllegalArgumentException e) {
+            throw new CompressException(e.getMessage());
+        } catch (OutOfMemoryError e) {
+            throw new CompressException("Compress Error - Insufficient memory");
+        } catch (IOException e) {
+            throw new CompressException("Input Error - Invalid or missing file");
+        }
+    }
+
+    /**
+     * Prints the no. of states of an automaton before and after minimisation
+     * 
+     * @param filePath -> filepath of the image or automaton
+     * @param before   -> no. of states before minimisation
+     * @param after    -> no. of states after minimisation
+     */
+    private static void reportStates(String filePath, int before, int after) {
+        System.out.println("States " + filePath + ": " + before + " -> " + after);
+    }
+
+    /**
+     * Calculates the maximum word length (quadtree depth) for an image of the
+     * given width
+     * 
+     * @param width -> width of the image in pixels
+     * @return -> the largest n with 2^n <= width
+     */
+    static int maxWordLength(int width) {
+        int size = width;
+        int maxlen = 0;
+        while (size >= 2) {
+            size = size / 2;
+            maxlen++;
         }
+        return maxlen;
+    }
+
+    /**
+     * Calculates the width of the canvas an image of the given size is
+     * compressed on
+     * -> a square image whose width is a power of two is its own canvas, any
+     * other image is the top left corner of a white canvas
+     * 
+     * @param width  -> width of the image in pixels
+     * @param height -> height of the image in pixels
+     * @return -> the smallest power of two >= the width and height
+     */
+    static int canvasSize(int width, int height) {
+        int size = Math.max(Math.max(width, height), 1);
+        return Integer.bitCount(size) == 1 ? size : Integer.highestOneBit(size) << 1;
+    }
+
+    /**
+     * Checks whether an image of the given size does not fill its canvas, so
+     * its true size must be stored with its automaton
+     * 
+     * @param width  -> width of the image in pixels
+     * @param height -> height of the image in pixels
+     * @return -> true if the image is not a square whose width is a power of two
+     */
+    static boolean needsImageSize(int width, int height) {
+        return width != height || canvasSize(width, height) != width;
+    }
+
+    /**
+     * Builds the DFA of the given quadtree and lists its transitions
+     * -> Adds the extra transitions of multi-resolution mode 1, which keep the
+     * accept state looping over every quadrant except the emptiest one
+     * 
+     * @param table        -> the table holding the quadtree nodes
+     * @param root         -> ID of the root node of the image
+     * @param multiResMode -> value for multi-res compression mode {1,2,3}
+     * @return -> A list of the no. of states, value of accept states, and all
+     *         transitions between states
+     */
+    static List<String> buildTransitions(NodeTable table, int root, int multiResMode) {
+        return buildTransitions(QuadtreeDfa.fromTree(table, root), multiResMode);
+    }
+
+    /**
+     * Lists the transitions of the given DFA
+     * -> Adds the extra transitions of multi-resolution mode 1
+     * 
+     * @param dfa          -> the DFA of the image
+     * @param multiResMode -> value for multi-res compression mode {1,2,3}
+     * @return -> A list of the no. of states, value of accept states, and all
+     *         transitions between states
+     */
+    static List<String> buildTransitions(QuadtreeDfa dfa, int multiResMode) {
+        List<String> output = dfa.getTransitions(multiResMode);
+        int accState = dfa.getFirstAcceptState();
+
+        if (multiResMode == 1 && accState != -1) {
+
+            // no. of black squares (words) in each quadrant of the image
+            long[] count = {0, 0, 0, 0};
+            for (int i = 0; i < count.length; i++) {
+                if (dfa.getNext(0, i) != -1) {
+                    count[i] = dfa.countWords(dfa.getNext(0, i));
+                }
+            }
+            long max = Long.MAX_VALUE;
+            List<Integer> whiteQuadrants = new ArrayList<>();
+            for (int i = 0; i < count.length; i++) {
+                if (count[i] <= max) {
+                    max = count[i];
+                }
+            }
+            for (int i = 0; i < count.length; i++) {
+                if (count[i] == max) {
+                    whiteQuadrants.add(i);
+                }
+            }
+            int min = 999999;
+            for (int i = 0; i < whiteQuadrants.size(); i++) {
+                if (whiteQuadrants.get(i) < min) {
+                    min = whiteQuadrants.get(i);
+                }
+            }
+            int whiteQuadrant = min;
+
+            for (int i = 0; i < 4; i++) {
+                if (i != whiteQuadrant) {
+                    output.add(accState + " " + accState + " " + i);
+                }
+            }
+
+        }
+        return output;
     }
 
     /**
@@ -391,133 +1116,10 @@ public class Compress {
         }
     }
 
-    /**
-     * Sets pixels at coordinates (given in parameters) to be coloured black
-     * 
-     * @param image -> decompressed png image
-     * @param x     -> x-coordinate of pixel to be coloured
-     * @param y     -> y-coordinate of pixel to be coloured
-     */
-    private static void setPixel(BufferedImage image, int y, int x) {
-        int black = 0;
-        int rgb = (black << 16) | (black << 8) | black;
-        image.setRGB(x - 1, y - 1, rgb);
-    }
-
-    /**
-     * Methods that recieves a word over the alphabet {0,1,2,3} and the calculated
-     * size of the image -> uses this to create a 2D array of the coordinate sof
-     * pixels
-     * to be coloured black
-     * 
-     * @param sequence -> word(string) or sequence over given alphabet (gives
-     *                 coordinates)
-     * @param size     -> size(integer) of the current image (in pixels)
-     * @return -> returns a 2D array(integer) of the coordinates associated with the
-     *         word
-     */
-    private static int[][] getCoordinates(String sequence, int size) {
-        int[][] pos = new int[2][size];
-        int[] yArr = new int[size];
-        int[] xArr = new int[size];
-        int length;
-
-        for (int i = 0; i < size; i++) {
-            yArr[i] = i + 1;
-            xArr[i] = i + 1;
-        }
-
-        for (int i = 0; i < sequence.length(); i++) {
-            size /= 2;
-            length = yArr.length;
-            char ch = sequence.charAt(i);
-
-            for (int j = 0; j < length; j++) {
-                switch (ch) {
-                    case '0':
-                        if (j + 1 > size) {
-                            xArr[j] = -1;
-                        } else if (j + 1 <= size) {
-                            yArr[j] = -1;
-                        }
-                        break;
-                    case '1':
-                        if (j + 1 > size) {
-                            yArr[j] = -1;
-                            xArr[j] = -1;
-                        }
-                        break;
-                    case '2':
-                        if (j + 1 <= size) {
-                            yArr[j] = -1;
-                            xArr[j] = -1;
-                        }
-                        break;
-                    case '3':
-                        if (j + 1 > size) {
-                            yArr[j] = -1;
-                        } else if (j + 1 <= size) {
-                            xArr[j] = -1;
-                        }
-                        break;
-                    default:
-                }
-            }
-
-            int count = 0;
-            for (int j = 0; j < length; j++) {
-                if (yArr[j] != -1) {
-                    count++;
-                }
-            }
-            int[] tempY = new int[count];
-            int[] tempX = new int[count];
-            int y = 0, x = 0;
-            for (int j = 0; j < length; j++) {
-                if (yArr[j] != -1) {
-                    tempY[y] = yArr[j];
-                    y++;
-                }
-                if (xArr[j] != -1) {
-                    tempX[x] = xArr[j];
-                    x++;
-                }
-            }
-            yArr = new int[count];
-            xArr = new int[count];
-            yArr = tempY;
-            xArr = tempX;
-
-        }
-        pos = new int[2][yArr.length];
-        for (int i = 0; i < yArr.length; i++) {
-            pos[0][i] = yArr[i];
-            pos[1][i] = xArr[i];
-        }
-        return pos;
-    }
-
-    /**
-     * Void method that sets the colour of pixels on the image to black, given
-     * coordinates in a 2D array
-     * 
-     * @param pos   -> 2D array(integers) of the y[0][n] and x[1]][n] coordinates of
-     *              a pixel
-     * @param image -> The image to be coloured
-     */
-    private static void set(int[][] pos, BufferedImage image) {
-        for (int i = 0; i < pos[0].length; i++) {
-            for (int j = 0; j < pos[1].length; j++) {
-                setPixel(image, pos[0][i], pos[1][j]);
-
-            }
-        }
-    }
-
     /**
      * Builds a DFA unique to the list of input "words".
-     * -> Uses an Automaton.java object to build automaton
-     * -> Makes calls to other helper methods such as getAlphabet
+     * -> Uses a QuadtreeDfa to hash-cons the words, so equal residual languages
+     * are found in O(1) instead of comparing against every existing state
      * -> Correctly adds states, transitions between states and
      * accept states
      * 
@@ -527,96 +1129,7 @@ public class Compress {
      *         transitions between states
      */
     public static List<String> buildDFA(List<String> words, int mode) {
-        List<String> output = new ArrayList<>();
-        int n = 0;
-        List<Set<String>> language = new ArrayList<>();
-        language.add(new HashSet<>(words));
-
-        Automaton automaton = new Automaton();
-        Set<Character> alphabet = getAlphabet(new HashSet<>(words));
-
-        // Transition function represented as a map of origin state to a map of input
-        // character to set of destination states
-        Map<Integer, Map<Character, Set<Integer>>> transitions = new HashMap<>();
-
-        for (int i = 0; i <= n; i++) {
-            int currentState = i;
-            automaton.addState(i);
-
-            for (Character a : alphabet) {
-                Set<String> nextLangState = new HashSet<>();
-                for (String word : language.get(i)) {
-                    if (word.startsWith(a.toString())) {
-                        nextLangState.add(word.substring(a.toString().length()));
-                    }
-                }
-
-                if (nextLangState.isEmpty()) {
-                    continue;
-                }
-
-                // Add the next state to the set of destinations for this input character
-                Map<Character, Set<Integer>> destStates = transitions.computeIfAbsent(currentState,
-                        k -> new HashMap<>());
-                Set<Integer> destSet = destStates.computeIfAbsent(a, k -> new HashSet<>());
-                int j;
-                for (j = 0; j <= n; j++) {
-                    if (language.get(j).equals(nextLangState)) {
-                        destSet.add(j);
-                        break;
-                    }
-                }
-
-                if (j > n) {
-                    n++;
-                    language.add(nextLangState);
-                    automaton.addState(n);
-                    destSet.add(n);
-                }
-            }
-
-            if (language.get(i).contains("")) {
-                automaton.addAcceptState(i);
-            }
-        }
-
-        // Add the transitions to the automaton
-        for (int state : transitions.keySet()) {
-            Map<Character, Set<Integer>> destStates = transitions.get(state);
-            for (char a : destStates.keySet()) {
-                Set<Integer> destSet = destStates.get(a);
-                for (int dest : destSet) {
-                    automaton.addTransition(state, dest, a);
-                }
-            }
-        }
-
-        // reduction -> multi-resolution
-        if (mode == 3) {
-            for (int i = 0; i < automaton.getNumStates(); i++) {
-                automaton.addAcceptState(i);
-            }
-        }
-
-        accState = automaton.getAccStates().get(0); // set accept state locally
-        output = automaton.getTransitions(mode);
-        return output;
-    }
-
-    /**
-     * Gets the current alphabet for the buildDFA method
-     * 
-     * @param language -> Set of the language (L element of {0, 1, 2, 3})
-     * @return -> Set of characters of new current alphabet
-     */
-    public static Set<Character> getAlphabet(Set<String> language) {
-        Set<Character> alphabet = new HashSet<>();
-        for (String word : language) {
-            for (char c : word.toCharArray()) {
-                alphabet.add(c);
-            }
-        }
-        return alphabet;
+        return QuadtreeDfa.fromWords(words).getTransitions(mode);
     }
 
     /**
@@ -628,20 +1141,29 @@ public class Compress {
      * @param filePath -> The filepath and name of the file to be created
      */
     public static void writeWordsToFile(List<String> words, String filePath) {
-        String outputFile;
         try {
-            outputFile = filePath.substring(filePath.lastIndexOf("/"),
-                    filePath.indexOf(".png"));
-            filePath = "out/" + outputFile + "_cmp.txt";
-            FileWriter fw = new FileWriter(filePath);
-            BufferedWriter writer = new BufferedWriter(fw);
+            writeTransitions(words, filePath);
+        } catch (IOException e) {
+            System.err.println("Input Error - Invalid or missing file");
+        }
+    }
+
+    /**
+     * Writes the output lines of an image to "out/<name>_cmp.txt"
+     * 
+     * @param words    -> the lines to write
+     * @param filePath -> filepath of the compressed image
+     * @throws IOException if the file cannot be written
+     */
+    static void writeTransitions(List<String> words, String filePath) throws IOException {
+        String outputFile = filePath.substring(filePath.lastIndexOf("/"),
+                filePath.indexOf(".png"));
+        try (BufferedWriter writer = new BufferedWriter(
+                new FileWriter("out/" + outputFile + "_cmp.txt"))) {
             for (String word : words) {
                 writer.write(word);
                 writer.newLine();
             }
-            writer.close();
-        } catch (IOException e) {
-            System.err.println("Input Error - Invalid or missing file");
         }
     }
 }
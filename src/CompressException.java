@@ -0,0 +1,24 @@
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The CompressException class signals that a single file could not be
+ * compressed or decompressed
+ * -> the message is the error shown to the user, e.g.
+ * "Compress Error - Invalid input image"
+ * -> Compress prints the message and terminates, BatchCompress reports it and
+ * moves on to the next file
+ */
+public class CompressException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new CompressException
+     *
+     * @param message -> the error shown to the user
+     */
+    public CompressException(String message) {
+        super(message);
+    }
+}
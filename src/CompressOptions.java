@@ -0,0 +1,637 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The CompressOptions class holds the optional "--name=value" command line
+ * options of Compress
+ * -> options may appear anywhere in the argument list and are removed from it,
+ * so the remaining arguments keep their usual positions
+ * -> supported options:
+ * --tile=<size> -> compress by streaming the image in tiles of size x size
+ * pixels (a power of two)
+ * --threads=<n> -> scan the image on a ForkJoinPool of n threads
+ * --cutoff=<depth> -> quadtree depth below which parallel scans run
+ * sequentially (default 3, i.e. up to 64 tasks)
+ * --workers=<n> -> no. of files BatchCompress processes at once, and of
+ * grayscale bit planes processed at once (default: one per available
+ * processor)
+ * --readers=<n> -> no. of files BatchCompress reads from disk at once
+ * (default 1)
+ * --writers=<n> -> no. of files BatchCompress writes to disk at once
+ * (default 1)
+ * --queue=<n> -> no. of files that may wait between two BatchCompress stages
+ * before the earlier stage blocks (default: twice --workers)
+ * --stats=<file> -> write the per-phase timings and counters of the run to
+ * the given file as JSON
+ * --tile-cache=<MB> -> memory bound of the decompression tile cache (default
+ * 64, 0 to disable the cache)
+ * --cache=<dir> -> keep the compressed automata in the given directory, and
+ * reuse them for images with the same black pixels instead of scanning them
+ * again (not with --tile or --gray, see AutomatonCache)
+ * --cache-size=<MB> -> size bound of the --cache directory (default 256)
+ * --max-request=<MB> -> largest payload CompressServer accepts in one request
+ * (default 256)
+ * --progressive -> decompress level by level, also writing the image of every
+ * coarser level as "out/<name>_dec_<depth>.png"
+ * --region=<x>,<y>,<width>,<height> -> decompress only the given window of the
+ * image (not with --progressive)
+ * --gray -> compress the image as 8-bit grayscale, one automaton per bit
+ * plane, into "out/<name>_cmp.gray" (not with --tile); the planes are
+ * processed --workers at a time
+ * --minimise -> minimise the automaton before it is written, and print the
+ * no. of states before and after minimisation (decompression always
+ * minimises the automaton it loads)
+ * --sequence -> BatchCompress compresses the images, in order, as the frames
+ * of one "out/<name>_cmp.seq" container named after the directory or
+ * manifest (see SequenceCompressor); not with --tile, --gray, --cache or
+ * --minimise
+ * --frame=<n> -> decompress only frame n (from 0) of a _cmp.seq container
+ * into "out/<name>_dec.png" (default: every frame n into
+ * "out/<name>_<n>_dec.png")
+ * --deflate=<level> -> deflate level of the decompressed PNG files, from 0
+ * (fastest) to 9 (smallest) (default: the PNG writer's default)
+ */
+public class CompressOptions {
+    private final List<String> arguments = new ArrayList<>();
+    private int tileSize = 0;
+    private int threads = 1;
+    private int cutoffDepth = 3;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private int readers = 1;
+    private int writers = 1;
+    private int queueSize = 0; // 0: twice the no. of workers
+    private String statsFile = null;
+    private long tileCacheBytes = TileCache.DEFAULT_MAX_BYTES;
+    private String cacheDir = null;
+    private long cacheBytes = AutomatonCache.DEFAULT_MAX_BYTES;
+    private long maxRequestBytes = CompressServer.DEFAULT_MAX_REQUEST_BYTES;
+    private boolean progressive = false;
+    private int[] region = null;
+    private boolean gray = false;
+    private boolean minimise = false;
+    private boolean sequence = false;
+    private int frame = -1; // -1: every frame
+    private int deflateLevel = PngWriter.DEFAULT_LEVEL;
+
+    /**
+     * Constructs the default options (no options given)
+     */
+    public CompressOptions() {
+    }
+
+    /**
+     * Constructs options from the given command line arguments
+     * -> Terminates program with exit error if an option is invalid
+     *
+     * @param args -> the command line arguments
+     */
+    public CompressOptions(String[] args) {
+        try {
+            parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Parses options from the given arguments, without terminating the
+     * program
+     * -> used where a bad option must not end the process (see CompressServer)
+     *
+     * @param args -> the arguments of one request
+     * @return -> the options, holding the arguments that are not options
+     * @throws IllegalArgumentException if an option is invalid
+     */
+    public static CompressOptions parse(String[] args) {
+        CompressOptions options = new CompressOptions();
+        options.parseArguments(args);
+        return options;
+    }
+
+    /**
+     * Parses the given arguments into these options
+     *
+     * @param args -> the command line arguments
+     * @throws IllegalArgumentException if an option is invalid
+     */
+    private void parseArguments(String[] args) {
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                arguments.add(arg);
+                continue;
+            }
+
+            String name = arg.contains("=") ? arg.substring(2, arg.indexOf('=')) : arg.substring(2);
+            String value = arg.contains("=") ? arg.substring(arg.indexOf('=') + 1) : "";
+            try {
+                switch (name) {
+                    case "tile":
+                        tileSize = Integer.parseInt(value);
+                        if (tileSize < 1 || Integer.bitCount(tileSize) != 1) {
+                            invalid();
+                        }
+                        break;
+                    case "threads":
+                        threads = Integer.parseInt(value);
+                        if (threads < 1) {
+                            invalid();
+                        }
+                        break;
+                    case "cutoff":
+                        cutoffDepth = Integer.parseInt(value);
+                        if (cutoffDepth < 0) {
+                            invalid();
+                        }
+                        break;
+                    case "workers":
+                        workers = Integer.parseInt(value);
+                        if (workers < 1) {
+                            invalid();
+                        }
+                        break;
+                    case "readers":
+                        readers = Integer.parseInt(value);
+                        if (readers < 1) {
+                            invalid();
+                        }
+                        break;
+                    case "writers":
+                        writers = Integer.parseInt(value);
+                        if (writers < 1) {
+                            invalid();
+                        }
+                        break;
+                    case "queue":
+                        queueSize = Integer.parseInt(value);
+                        if (queueSize < 1) {
+                            invalid();
+                        }
+                        break;
+                    case "stats":
+                        statsFile = value;
+                        if (statsFile.isEmpty()) {
+                            invalid();
+                        }
+                        break;
+                    case "tile-cache":
+                        long tileCacheMegabytes = Long.parseLong(value);
+                        if (tileCacheMegabytes < 0 || tileCacheMegabytes > Long.MAX_VALUE >> 20) {
+                            invalid(); // the no. of bytes must fit in a long
+                        }
+                        tileCacheBytes = tileCacheMegabytes << 20;
+                        break;
+                    case "cache":
+                        cacheDir = value;
+                        if (cacheDir.isEmpty()) {
+                            invalid();
+                        }
+                        break;
+                    case "cache-size":
+                        long cacheMegabytes = Long.parseLong(value);
+                        if (cacheMegabytes < 1 || cacheMegabytes > Long.MAX_VALUE >> 20) {
+                            invalid(); // the no. of bytes must fit in a long
+                        }
+                        cacheBytes = cacheMegabytes << 20;
+                        break;
+                    case "max-request":
+                        long megabytes = Long.parseLong(value);
+                        if (megabytes < 1 || megabytes > Integer.MAX_VALUE >> 20) {
+                            invalid(); // the payload must fit in one array
+                        }
+                        maxRequestBytes = megabytes << 20;
+                        break;
+                    case "progressive":
+                        progressive = true;
+                        if (!value.isEmpty()) {
+                            invalid();
+                        }
+                        break;
+                    case "region":
+                        String[] values = value.split(",", -1);
+                        if (values.length != 4) {
+                            invalid();
+                        }
+                        region = new int[4];
+                        for (int i = 0; i < 4; i++) {
+                            region[i] = Integer.parseInt(values[i].trim());
+                        }
+                        if (region[0] < 0 || region[1] < 0 || region[2] < 1 || region[3] < 1) {
+                            invalid();
+                        }
+                        break;
+                    case "gray":
+                        gray = true;
+                        if (!value.isEmpty()) {
+                            invalid();
+                        }
+                        break;
+                    case "minimise":
+                        minimise = true;
+                        if (!value.isEmpty()) {
+                            invalid();
+                        }
+                        break;
+                    case "sequence":
+                        sequence = true;
+                        if (!value.isEmpty()) {
+                            invalid();
+                        }
+                        break;
+                    case "frame":
+                        frame = Integer.parseInt(value);
+                        if (frame < 0) {
+                            invalid();
+                        }
+                        break;
+                    case "deflate":
+                        deflateLevel = Integer.parseInt(value);
+                        if (deflateLevel < 0 || deflateLevel > PngWriter.MAX_LEVEL) {
+                            invalid();
+                        }
+                        break;
+                    default:
+                        invalid();
+                }
+            } catch (NumberFormatException e) {
+                invalid();
+            }
+        }
+        if (progressive && region != null || gray && tileSize > 0
+                || cacheDir != null && (gray || tileSize > 0)
+                || sequence && (gray || tileSize > 0 || cacheDir != null || minimise)) {
+            invalid();
+        }
+    }
+
+    /**
+     * Signals an invalid option
+     *
+     * @throws IllegalArgumentException always
+     */
+    private static void invalid() {
+        throw new IllegalArgumentException("Input Error - Invalid option");
+    }
+
+    /**
+     * Fetches the command line arguments that are not options
+     *
+     * @return -> the remaining arguments, in order
+     */
+    public String[] getArguments() {
+        return arguments.toArray(new String[0]);
+    }
+
+    /**
+     * Fetches the tile size for streaming compression
+     *
+     * @return -> the tile size in pixels, or 0 to read the whole image at once
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Sets the tile size for streaming compression
+     *
+     * @param tileSize -> the tile size in pixels, or 0 to read the whole image
+     */
+    public void setTileSize(int tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Fetches the number of threads used to scan the image
+     *
+     * @return -> the number of threads, 1 for a sequential scan
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads used to scan the image
+     *
+     * @param threads -> the number of threads, 1 for a sequential scan
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Fetches the quadtree depth below which parallel scans run sequentially
+     *
+     * @return -> the cutoff depth
+     */
+    public int getCutoffDepth() {
+        return cutoffDepth;
+    }
+
+    /**
+     * Sets the quadtree depth below which parallel scans run sequentially
+     *
+     * @param cutoffDepth -> the cutoff depth
+     */
+    public void setCutoffDepth(int cutoffDepth) {
+        this.cutoffDepth = cutoffDepth;
+    }
+
+    /**
+     * Fetches the number of files processed at once in batch mode, and of
+     * grayscale bit planes processed at once
+     *
+     * @return -> the number of worker threads
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Sets the number of files processed at once in batch mode, and of
+     * grayscale bit planes processed at once
+     *
+     * @param workers -> the number of worker threads
+     */
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * Fetches the number of files read from disk at once in batch mode
+     *
+     * @return -> the number of reader threads
+     */
+    public int getReaders() {
+        return readers;
+    }
+
+    /**
+     * Sets the number of files read from disk at once in batch mode
+     *
+     * @param readers -> the number of reader threads
+     */
+    public void setReaders(int readers) {
+        this.readers = readers;
+    }
+
+    /**
+     * Fetches the number of files written to disk at once in batch mode
+     *
+     * @return -> the number of writer threads
+     */
+    public int getWriters() {
+        return writers;
+    }
+
+    /**
+     * Sets the number of files written to disk at once in batch mode
+     *
+     * @param writers -> the number of writer threads
+     */
+    public void setWriters(int writers) {
+        this.writers = writers;
+    }
+
+    /**
+     * Fetches the capacity of the queues between the batch mode stages
+     *
+     * @return -> the no. of files that may wait between two stages
+     */
+    public int getQueueSize() {
+        return queueSize > 0 ? queueSize : 2 * workers;
+    }
+
+    /**
+     * Sets the capacity of the queues between the batch mode stages
+     *
+     * @param queueSize -> the no. of files that may wait between two stages
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Fetches the file the run statistics are written to
+     *
+     * @return -> path of the JSON file, or null to not write statistics
+     */
+    public String getStatsFile() {
+        return statsFile;
+    }
+
+    /**
+     * Sets the file the run statistics are written to
+     *
+     * @param statsFile -> path of the JSON file, or null to not write statistics
+     */
+    public void setStatsFile(String statsFile) {
+        this.statsFile = statsFile;
+    }
+
+    /**
+     * Fetches the memory bound of the decompression tile cache
+     *
+     * @return -> the memory bound in bytes, 0 if the cache is disabled
+     */
+    public long getTileCacheBytes() {
+        return tileCacheBytes;
+    }
+
+    /**
+     * Sets the memory bound of the decompression tile cache
+     *
+     * @param tileCacheBytes -> the memory bound in bytes, 0 to disable the cache
+     */
+    public void setTileCacheBytes(long tileCacheBytes) {
+        this.tileCacheBytes = tileCacheBytes;
+    }
+
+    /**
+     * Fetches the directory of the automaton cache
+     *
+     * @return -> the directory, or null if compression is not cached
+     */
+    public String getCacheDir() {
+        return cacheDir;
+    }
+
+    /**
+     * Sets the directory of the automaton cache
+     *
+     * @param cacheDir -> the directory, or null to not cache compression
+     */
+    public void setCacheDir(String cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Fetches the size bound of the automaton cache
+     *
+     * @return -> the size bound in bytes
+     */
+    public long getCacheBytes() {
+        return cacheBytes;
+    }
+
+    /**
+     * Sets the size bound of the automaton cache
+     *
+     * @param cacheBytes -> the size bound in bytes
+     */
+    public void setCacheBytes(long cacheBytes) {
+        this.cacheBytes = cacheBytes;
+    }
+
+    /**
+     * Fetches the largest payload the server accepts in one request
+     *
+     * @return -> the bound in bytes
+     */
+    public long getMaxRequestBytes() {
+        return maxRequestBytes;
+    }
+
+    /**
+     * Sets the largest payload the server accepts in one request
+     *
+     * @param maxRequestBytes -> the bound in bytes
+     */
+    public void setMaxRequestBytes(long maxRequestBytes) {
+        this.maxRequestBytes = maxRequestBytes;
+    }
+
+    /**
+     * Checks whether decompression writes every level of detail
+     *
+     * @return -> true to decompress progressively, false otherwise
+     */
+    public boolean isProgressive() {
+        return progressive;
+    }
+
+    /**
+     * Sets whether decompression writes every level of detail
+     *
+     * @param progressive -> true to decompress progressively, false otherwise
+     */
+    public void setProgressive(boolean progressive) {
+        this.progressive = progressive;
+    }
+
+    /**
+     * Fetches the window of the image to decompress
+     *
+     * @return -> {x, y, width, height} of the window, or null for the whole
+     *         image
+     */
+    public int[] getRegion() {
+        return region;
+    }
+
+    /**
+     * Sets the window of the image to decompress
+     *
+     * @param region -> {x, y, width, height} of the window, or null for the
+     *               whole image
+     */
+    public void setRegion(int[] region) {
+        this.region = region;
+    }
+
+    /**
+     * Checks whether images are compressed as grayscale bit planes
+     *
+     * @return -> true for grayscale compression, false for black and white
+     */
+    public boolean isGray() {
+        return gray;
+    }
+
+    /**
+     * Sets whether images are compressed as grayscale bit planes
+     *
+     * @param gray -> true for grayscale compression, false for black and white
+     */
+    public void setGray(boolean gray) {
+        this.gray = gray;
+    }
+
+    /**
+     * Checks whether automata are minimised before they are written
+     *
+     * @return -> true to minimise and report the no. of states, false otherwise
+     */
+    public boolean isMinimise() {
+        return minimise;
+    }
+
+    /**
+     * Sets whether automata are minimised before they are written
+     *
+     * @param minimise -> true to minimise and report the no. of states, false
+     *                 otherwise
+     */
+    public void setMinimise(boolean minimise) {
+        this.minimise = minimise;
+    }
+
+    /**
+     * Checks whether a batch is compressed as the frames of one sequence
+     *
+     * @return -> true to compress a sequence, false otherwise
+     */
+    public boolean isSequence() {
+        return sequence;
+    }
+
+    /**
+     * Sets whether a batch is compressed as the frames of one sequence
+     *
+     * @param sequence -> true to compress a sequence, false otherwise
+     */
+    public void setSequence(boolean sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Fetches the frame of a sequence to decompress
+     *
+     * @return -> index of the frame, or -1 for every frame
+     */
+    public int getFrame() {
+        return frame;
+    }
+
+    /**
+     * Sets the frame of a sequence to decompress
+     *
+     * @param frame -> index of the frame, or -1 for every frame
+     */
+    public void setFrame(int frame) {
+        this.frame = frame;
+    }
+
+    /**
+     * Fetches the deflate level of the decompressed PNG files
+     *
+     * @return -> the deflate level (0-9), or PngWriter.DEFAULT_LEVEL for the
+     *         writer's default
+     */
+    public int getDeflateLevel() {
+        return deflateLevel;
+    }
+
+    /**
+     * Sets the deflate level of the decompressed PNG files
+     *
+     * @param deflateLevel -> the deflate level (0-9), or PngWriter.DEFAULT_LEVEL
+     *                     for the writer's default
+     */
+    public void setDeflateLevel(int deflateLevel) {
+        this.deflateLevel = deflateLevel;
+    }
+}
@@ -0,0 +1,287 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * Long-lived compression service on a localhost socket
+ * -> the JVM starts and warms up once, and every request is served in
+ * memory: the image or automaton is sent with the request and the result is
+ * sent back, without reading or writing any files (see Compress.compressBytes
+ * and Compress.decompressBytes)
+ * -> every connection is served on its own virtual thread where the JVM has
+ * them (Java 21+), and on a cached thread pool otherwise, so requests on
+ * different connections run concurrently
+ * -> a connection carries any number of requests, answered in order
+ * -> a payload larger than --max-request is refused before it is read, and
+ * the connection is closed
+ * -> protocol (integers are big-endian, strings are written with
+ * DataOutputStream.writeUTF):
+ * request: string arguments, int payload length, payload bytes
+ * response: byte status, then for OK the int length and bytes of the result,
+ * or for ERROR the error message as a string
+ * -> the arguments are those of BatchCompress, without the directory:
+ * [--options] <mode> <multi-resolution flag> [<word length/multi-resolution
+ * method>], e.g. "2 f" compresses a PNG image into the bytes of a _cmp.txt
+ * file, "1 t 5 --deflate=1" decompresses an automaton into the bytes of a PNG
+ * image at word length 5
+ * -> the --progressive, --stats and --sequence options are not supported by
+ * the server; a frame of a _cmp.seq container is decompressed with --frame
+ */
+public class CompressServer implements AutoCloseable {
+    public static final byte OK = 0;
+    public static final byte ERROR = 1;
+    public static final long DEFAULT_MAX_REQUEST_BYTES = 256L << 20;
+
+    private final ServerSocket socket;
+    private final long maxRequestBytes;
+    private final ExecutorService connections;
+
+    /**
+     * Main class for the compression service
+     * -> listens on the loopback address until the process is terminated
+     *
+     * @param args -> [--max-request=<MB>] <port> (0 for any free port)
+     */
+    public static void main(String[] args) {
+        CompressOptions options = new CompressOptions(args);
+        args = options.getArguments();
+        if (args.length != 1) {
+            System.err.println("Input Error - Invalid number of arguments");
+            System.exit(0);
+        }
+
+        int port = 0;
+        try {
+            port = Integer.parseInt(args[0]);
+        } catch (NumberFormatException e) {
+            System.err.println("Input Error - Invalid argument type");
+            System.exit(0);
+        }
+
+        try (CompressServer server = new CompressServer(port,
+                options.getMaxRequestBytes())) {
+            System.out.println("Listening on " + server.socket.getInetAddress().getHostAddress()
+                    + ":" + server.getPort());
+            server.serve();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Input Error - Invalid port");
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Constructs a new server listening on the loopback address
+     *
+     * @param port -> the port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public CompressServer(int port) throws IOException {
+        this(port, DEFAULT_MAX_REQUEST_BYTES);
+    }
+
+    /**
+     * Constructs a new server listening on the loopback address, accepting
+     * payloads of at most the given size
+     *
+     * @param port            -> the port to listen on, 0 for any free port
+     * @param maxRequestBytes -> the largest payload of one request in bytes
+     * @throws IOException if the port cannot be bound
+     */
+    public CompressServer(int port, long maxRequestBytes) throws IOException {
+        this.socket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        this.maxRequestBytes = maxRequestBytes;
+        this.connections = newExecutor();
+    }
+
+    /**
+     * Fetches the port the server listens on
+     *
+     * @return -> the local port
+     */
+    public int getPort() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until the server is closed, serving each one on its
+     * own thread
+     *
+     * @throws IOException if accepting a connection fails while the server is
+     *                     open
+     */
+    public void serve() throws IOException {
+        while (!socket.isClosed()) {
+            Socket client;
+            try {
+                client = socket.accept();
+            } catch (IOException e) {
+                if (socket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            connections.execute(() -> serve(client));
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes the connections being served
+     *
+     * @throws IOException if the socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        connections.shutdownNow();
+    }
+
+    /**
+     * Answers the requests of one connection in order, until the client
+     * closes it
+     *
+     * @param client -> the connection
+     */
+    private void serve(Socket client) {
+        try (Socket connection = client;
+                DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(connection.getInputStream()));
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(connection.getOutputStream()))) {
+            while (true) {
+                String arguments;
+                try {
+                    arguments = in.readUTF();
+                } catch (EOFException e) { // the client is done
+                    return;
+                }
+                int length = in.readInt();
+                if (length < 0 || length > maxRequestBytes) {
+                    out.writeByte(ERROR);
+                    out.writeUTF("Input Error - Invalid request");
+                    out.flush();
+                    return; // the payload is not read, so the stream cannot be framed
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+
+                CompressStats stats = new CompressStats("request",
+                        connection.getRemoteSocketAddress().toString());
+                byte[] result;
+                try {
+                    result = process(arguments, payload, stats);
+                } catch (CompressException e) {
+                    out.writeByte(ERROR);
+                    out.writeUTF(e.getMessage());
+                    out.flush();
+                    continue;
+                }
+                out.writeByte(OK);
+                out.writeInt(result.length);
+                out.write(result);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // the connection was closed or reset, nothing left to answer
+        }
+    }
+
+    /**
+     * Compresses or decompresses the payload of one request
+     *
+     * @param arguments -> the arguments of the request (see the protocol)
+     * @param payload   -> the image or automaton to process
+     * @param stats     -> the statistics to record
+     * @return -> the bytes of the compressed automaton or decompressed image
+     * @throws CompressException if the arguments are invalid or the payload
+     *                           cannot be processed
+     */
+    static byte[] process(String arguments, byte[] payload, CompressStats stats)
+            throws CompressException {
+        CompressOptions options;
+        try {
+            options = CompressOptions.parse(arguments.trim().split("\\s+"));
+        } catch (IllegalArgumentException e) {
+            throw new CompressException(e.getMessage());
+        }
+        if (options.isProgressive() || options.getStatsFile() != null || options.isSequence()) {
+            throw new CompressException("Input Error - Invalid option");
+        }
+
+        String[] args = options.getArguments();
+        if (args.length < 2 || args.length > 3) {
+            throw new CompressException("Input Error - Invalid number of arguments");
+        }
+        int mode;
+        int wordLen = -1;
+        int multiResMode = 0;
+        boolean multiRes = args[1].equalsIgnoreCase("t");
+        try {
+            mode = Integer.parseInt(args[0]);
+            if (multiRes && args.length == 3) {
+                if (mode == 1) {
+                    wordLen = Integer.parseInt(args[2]);
+                } else {
+                    multiResMode = Integer.parseInt(args[2]);
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new CompressException("Input Error - Invalid argument type");
+        }
+
+        if (mode != 1 && mode != 2) {
+            throw new CompressException("Input Error - Invalid mode");
+        }
+        if (!multiRes && !args[1].equalsIgnoreCase("f")) {
+            throw new CompressException("Input Error - Invalid multi-resolution flag");
+        }
+        if (args.length != (multiRes ? 3 : 2)) {
+            throw new CompressException("Input Error - Invalid number of arguments");
+        }
+        if (multiRes && mode == 1 && wordLen < 0) {
+            throw new CompressException("Decompress Error - Invalid word length");
+        }
+        if (multiRes && mode == 2 && (multiResMode < 1 || multiResMode > 3)) {
+            throw new CompressException("Compress Error - Invalid multi-resolution method");
+        }
+
+        try {
+            if (mode == 1) {
+                return Compress.decompressBytes(payload, wordLen, options, stats);
+            }
+            return Compress.compressBytes(payload, multiResMode, options, stats);
+        } catch (RuntimeException | OutOfMemoryError | StackOverflowError e) {
+            throw new CompressException("Input Error - " + e);
+        } finally {
+            stats.end();
+        }
+    }
+
+    /**
+     * Creates the executor the connections are served on
+     * -> Executors.newVirtualThreadPerTaskExecutor is looked up at run time,
+     * so the class still compiles and runs on JVMs without virtual threads
+     *
+     * @return -> a virtual thread per task executor, or a cached thread pool
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
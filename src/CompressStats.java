@@ -0,0 +1,458 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The CompressStats class records where the time of one compression or
+ * decompression goes
+ * -> the work is split into named phases (e.g. read, scan, dfa, write), each
+ * with its wall time and the bytes allocated by the calling thread
+ * -> a phase must begin and end on the same thread, as its allocated bytes
+ * are measured on that thread; the statistics may be handed to another
+ * thread between phases (see BatchPipeline)
+ * -> counters hold the size of the work (words, states, pixels, ...)
+ * -> every phase is also emitted as a JFR event (imageprocessing.Phase) and
+ * the whole run as one more (imageprocessing.File), so a flight recording
+ * shows the same numbers in production
+ * -> when the size of the input file is known, the throughput of the read
+ * phase is reported in MB/s
+ * -> the summary can be written as JSON with the --stats=<file> option
+ */
+public class CompressStats {
+
+    /**
+     * The counters recorded for a run
+     */
+    public enum Counter {
+        WORDS("words"), // black squares (words) in the image
+        STATES("states"), // states of the automaton
+        TRANSITIONS("transitions"), // transitions of the automaton
+        PIXELS("pixels"), // pixels read (compress) or written (decompress)
+        NODES_VISITED("nodesVisited"), // quadrants visited by the scan
+        NODES("nodes"), // canonical quadtree nodes created by the scan
+        TILE_HITS("tileCacheHits"), // tiles copied from the tile cache
+        TILE_MISSES("tileCacheMisses"), // tiles rendered after a cache miss
+        CACHE_HITS("cacheHits"), // automata found in the automaton cache
+        CACHE_MISSES("cacheMisses"), // automata not found in the automaton cache
+        MINIMISED_STATES("minimisedStates"), // states left after minimisation
+        INPUT_BYTES("inputBytes"); // size of the automaton file read (decompress)
+
+        private final String key;
+
+        Counter(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private final String operation;
+    private final String file;
+    private final long start = System.nanoTime();
+    private final FileEvent fileEvent = new FileEvent();
+    private long end = -1;
+    private String error;
+
+    private final List<String> phaseNames = new ArrayList<>();
+    private final List<long[]> phaseValues = new ArrayList<>(); // {nanos, bytes}
+    private final Map<Counter, Long> counters = new EnumMap<>(Counter.class);
+
+    private String current;
+    private long currentStart;
+    private long currentBytes;
+    private Thread currentThread;
+    private PhaseEvent currentEvent;
+
+    /**
+     * Constructs new, empty statistics for one file
+     *
+     * @param operation -> "compress" or "decompress"
+     * @param file      -> path of the input file
+     */
+    public CompressStats(String operation, String file) {
+        this.operation = operation;
+        this.file = file;
+        fileEvent.begin();
+    }
+
+    /**
+     * Starts the given phase, ending the current one if there is one
+     * -> the phase must be ended on the calling thread
+     *
+     * @param phase -> name of the phase
+     */
+    public void begin(String phase) {
+        end();
+        current = phase;
+        currentEvent = new PhaseEvent();
+        currentEvent.begin();
+        currentThread = Thread.currentThread();
+        currentBytes = allocatedBytes();
+        currentStart = System.nanoTime();
+    }
+
+    /**
+     * Ends the current phase, if there is one
+     */
+    public void end() {
+        if (current == null) {
+            return;
+        }
+        assert currentThread == Thread.currentThread() : "phase " + current
+                + " ended on another thread";
+        long nanos = System.nanoTime() - currentStart;
+        long bytes = allocatedBytes() - currentBytes;
+
+        currentEvent.end();
+        if (currentEvent.shouldCommit()) {
+            currentEvent.operation = operation;
+            currentEvent.file = file;
+            currentEvent.phase = current;
+            currentEvent.allocated = bytes;
+            currentEvent.commit();
+        }
+
+        int i = phaseNames.indexOf(current);
+        if (i < 0) {
+            phaseNames.add(current);
+            phaseValues.add(new long[] {nanos, bytes});
+        } else {
+            phaseValues.get(i)[0] += nanos;
+            phaseValues.get(i)[1] += bytes;
+        }
+        current = null;
+        currentThread = null;
+        currentEvent = null;
+    }
+
+    /**
+     * Sets a counter
+     *
+     * @param counter -> the counter
+     * @param value   -> the new value
+     */
+    public void set(Counter counter, long value) {
+        counters.put(counter, value);
+    }
+
+    /**
+     * Adds to a counter
+     *
+     * @param counter -> the counter
+     * @param value   -> the amount to add
+     */
+    public void add(Counter counter, long value) {
+        counters.merge(counter, value, Long::sum);
+    }
+
+    /**
+     * Fetches a counter
+     *
+     * @param counter -> the counter
+     * @return -> the value of the counter, or 0 if it was never set
+     */
+    public long get(Counter counter) {
+        return counters.getOrDefault(counter, 0L);
+    }
+
+    /**
+     * Ends the run: ends the current phase and emits the run's JFR event
+     *
+     * @param error -> the error message if the run failed, null otherwise
+     */
+    public void finish(String error) {
+        end();
+        this.end = System.nanoTime();
+        this.error = error;
+
+        fileEvent.end();
+        if (fileEvent.shouldCommit()) {
+            fileEvent.operation = operation;
+            fileEvent.file = file;
+            fileEvent.failed = error != null;
+            fileEvent.words = get(Counter.WORDS);
+            fileEvent.states = get(Counter.STATES);
+            fileEvent.transitions = get(Counter.TRANSITIONS);
+            fileEvent.pixels = get(Counter.PIXELS);
+            fileEvent.nodesVisited = get(Counter.NODES_VISITED);
+            fileEvent.nodes = get(Counter.NODES);
+            fileEvent.tileCacheHits = get(Counter.TILE_HITS);
+            fileEvent.tileCacheMisses = get(Counter.TILE_MISSES);
+            fileEvent.cacheHits = get(Counter.CACHE_HITS);
+            fileEvent.cacheMisses = get(Counter.CACHE_MISSES);
+            fileEvent.minimisedStates = get(Counter.MINIMISED_STATES);
+            fileEvent.inputBytes = get(Counter.INPUT_BYTES);
+            fileEvent.commit();
+        }
+    }
+
+    /**
+     * Fetches the error message of the run
+     *
+     * @return -> the error message, or null if the run succeeded
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Fetches the path of the input file
+     *
+     * @return -> the path of the input file
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * Fetches the wall time of the whole run
+     *
+     * @return -> the time in milliseconds, up to now if the run is not finished
+     */
+    public long getMillis() {
+        return ((end < 0 ? System.nanoTime() : end) - start) / 1000000;
+    }
+
+    /**
+     * Fetches the throughput of the read phase
+     *
+     * @return -> the input bytes read per second in MB/s, or -1 if the size of
+     *         the input or the read phase is unknown
+     */
+    public double getReadThroughput() {
+        int i = phaseNames.indexOf("read");
+        if (i < 0 || !counters.containsKey(Counter.INPUT_BYTES)) {
+            return -1;
+        }
+        return throughput(get(Counter.INPUT_BYTES), phaseValues.get(i)[0]);
+    }
+
+    /**
+     * Converts the statistics to a JSON object
+     * -> {"operation": ..., "file": ..., "status": "ok" | "failed",
+     * "error": ..., "totalMs": ..., "readMBps": ..., "phases": {name: {"ms":
+     * ..., "allocatedBytes": ...}, ...}, "counters": {name: value, ...}}
+     * -> "readMBps" is only present when the inputBytes counter is set
+     *
+     * @return -> the JSON object, on one line
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{");
+        json.append("\"operation\":").append(quote(operation));
+        json.append(",\"file\":").append(quote(file));
+        json.append(",\"status\":").append(error == null ? "\"ok\"" : "\"failed\"");
+        if (error != null) {
+            json.append(",\"error\":").append(quote(error));
+        }
+        long total = (end < 0 ? System.nanoTime() : end) - start;
+        json.append(",\"totalMs\":").append(millis(total));
+        double throughput = getReadThroughput();
+        if (throughput >= 0) {
+            json.append(",\"readMBps\":").append(String.format(Locale.ROOT, "%.3f", throughput));
+        }
+
+        json.append(",\"phases\":{");
+        for (int i = 0; i < phaseNames.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(quote(phaseNames.get(i))).append(":{\"ms\":")
+                    .append(millis(phaseValues.get(i)[0]))
+                    .append(",\"allocatedBytes\":").append(phaseValues.get(i)[1]).append('}');
+        }
+        json.append("},\"counters\":{");
+        boolean first = true;
+        for (Map.Entry<Counter, Long> counter : counters.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append(quote(counter.getKey().key)).append(':').append(counter.getValue());
+        }
+        return json.append("}}").toString();
+    }
+
+    /**
+     * Writes the statistics of one or more runs to a JSON file
+     * -> a single run is written as one object, several as an array
+     *
+     * @param runs     -> the statistics to write
+     * @param filePath -> the file to create
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeJson(List<CompressStats> runs, String filePath) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
+            if (runs.size() == 1) {
+                writer.write(runs.get(0).toJson());
+            } else {
+                writer.write('[');
+                for (int i = 0; i < runs.size(); i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.newLine();
+                    writer.write(runs.get(i).toJson());
+                }
+                writer.newLine();
+                writer.write(']');
+            }
+            writer.newLine();
+        }
+    }
+
+    /**
+     * Converts a no. of bytes processed in the given time to MB/s
+     *
+     * @param bytes -> the no. of bytes
+     * @param nanos -> the time taken in nanoseconds
+     * @return -> the throughput in MB/s (10^6 bytes per second)
+     */
+    static double throughput(long bytes, long nanos) {
+        return nanos <= 0 ? 0 : bytes * 1e3 / nanos;
+    }
+
+    /**
+     * Formats nanoseconds as milliseconds with three decimals
+     */
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /**
+     * Quotes and escapes a string for JSON
+     */
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Fetches the no. of bytes allocated so far by the calling thread
+     *
+     * @return -> the no. of bytes, or 0 if the JVM does not measure allocation
+     */
+    private static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Fetches the thread bean that measures allocation, if the JVM has one
+     */
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * JFR event for one phase of a run
+     */
+    @Name("imageprocessing.Phase")
+    @Label("Compress Phase")
+    @Category("Image Processing")
+    @Description("One phase of compressing or decompressing a file")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("File")
+        String file;
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+
+    /**
+     * JFR event for a whole run, with its counters
+     */
+    @Name("imageprocessing.File")
+    @Label("Compress File")
+    @Category("Image Processing")
+    @Description("Counters of compressing or decompressing a file")
+    @StackTrace(false)
+    static class FileEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("File")
+        String file;
+
+        @Label("Failed")
+        boolean failed;
+
+        @Label("Words")
+        long words;
+
+        @Label("States")
+        long states;
+
+        @Label("Transitions")
+        long transitions;
+
+        @Label("Pixels")
+        long pixels;
+
+        @Label("Nodes Visited")
+        long nodesVisited;
+
+        @Label("Nodes")
+        long nodes;
+
+        @Label("Tile Cache Hits")
+        long tileCacheHits;
+
+        @Label("Tile Cache Misses")
+        long tileCacheMisses;
+
+        @Label("Cache Hits")
+        long cacheHits;
+
+        @Label("Cache Misses")
+        long cacheMisses;
+
+        @Label("Minimised States")
+        long minimisedStates;
+
+        @Label("Input Bytes")
+        @DataAmount
+        long inputBytes;
+    }
+}
@@ -0,0 +1,400 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * This class represents a finite automaton over the alphabet {0, 1, 2, 3},
+ * stored in primitive arrays
+ * -> offers the same operations as Automaton, without boxing or hashing on
+ * any per-transition path
+ * -> accept states are a BitSet, so checking a state is O(1)
+ * -> transitions are added to an edge list and compacted on first use into a
+ * CSR (compressed sparse row) table: the targets of (state, symbol) are
+ * targets[offsets[state * 4 + symbol]..offsets[state * 4 + symbol + 1]],
+ * sorted and without duplicates, so nondeterministic automata are supported
+ * -> an automaton may also hold the true width and height of its image, when
+ * the image is not a square whose width is a power of two (see
+ * Compress.canvasSize)
+ */
+public class DenseAutomaton {
+    private int numStates = 1;
+    private final BitSet acceptStates = new BitSet();
+
+    private int[] edges = new int[32]; // pairs of (state * 4 + symbol, next state)
+    private int numEdges = 0;
+
+    private int[] offsets; // CSR table, null until the edge list is compacted
+    private int[] targets;
+
+    private int imageWidth = 0; // true size of the image, 0 if it fills the canvas
+    private int imageHeight = 0;
+
+    /**
+     * Constructs a new DenseAutomaton with an initial state of ID 0 (start
+     * state)
+     */
+    public DenseAutomaton() {
+    }
+
+    /**
+     * Adds states to this automaton up to the given ID
+     * -> If the ID already exists, nothing is added
+     *
+     * @param id -> ID of the new state
+     */
+    public void addState(int id) {
+        if (id >= numStates) {
+            numStates = id + 1;
+            offsets = null;
+        }
+    }
+
+    /**
+     * Fetches and returns the number of states in the automaton
+     *
+     * @return -> The number of states
+     */
+    public int getNumStates() {
+        return numStates;
+    }
+
+    /**
+     * Adds a new transition to this automaton from the start state to the next
+     * state with the given input symbol
+     *
+     * @param startState -> ID of the start state for the transition
+     * @param toState    -> ID of the next state for the transition
+     * @param input      -> input symbol for the transition {0, 1, 2, 3}
+     * @throws IndexOutOfBoundsException if either state does not exist
+     * @throws IllegalArgumentException  if the symbol is not in the alphabet
+     */
+    public void addTransition(int startState, int toState, int input) {
+        checkState(startState);
+        checkState(toState);
+        if (input < 0 || input > 3) {
+            throw new IllegalArgumentException("Invalid symbol " + input);
+        }
+        if (numEdges * 2 == edges.length) {
+            edges = Arrays.copyOf(edges, edges.length * 2);
+        }
+        edges[numEdges * 2] = startState * 4 + input;
+        edges[numEdges * 2 + 1] = toState;
+        numEdges++;
+        offsets = null;
+    }
+
+    /**
+     * Adds a new accept state to the automaton, given its ID
+     *
+     * @param id -> ID of state to add as an accept state
+     * @throws IndexOutOfBoundsException if the ID is negative
+     */
+    public void addAcceptState(int id) {
+        acceptStates.set(id);
+    }
+
+    /**
+     * Checks whether the given state is an accept state
+     *
+     * @param id -> ID of the state
+     * @return -> true if the state is an accept state, false otherwise
+     */
+    public boolean isAcceptState(int id) {
+        return acceptStates.get(id);
+    }
+
+    /**
+     * Sets the true width and height of the image described by the automaton
+     * -> the image is the top left corner of the canvas the words address,
+     * the rest of the canvas is white
+     *
+     * @param width  -> width of the image in pixels, 0 if it fills the canvas
+     * @param height -> height of the image in pixels, 0 if it fills the canvas
+     */
+    public void setImageSize(int width, int height) {
+        this.imageWidth = width;
+        this.imageHeight = height;
+    }
+
+    /**
+     * Checks whether the true size of the image is stored
+     *
+     * @return -> true if the image does not fill the canvas, false otherwise
+     */
+    public boolean hasImageSize() {
+        return imageWidth > 0;
+    }
+
+    /**
+     * Fetches the true width of the image
+     *
+     * @return -> the width in pixels, or 0 if the image fills the canvas
+     */
+    public int getImageWidth() {
+        return imageWidth;
+    }
+
+    /**
+     * Fetches the true height of the image
+     *
+     * @return -> the height in pixels, or 0 if the image fills the canvas
+     */
+    public int getImageHeight() {
+        return imageHeight;
+    }
+
+    /**
+     * Fetches and returns the list of accept states in the automaton
+     *
+     * @return -> The IDs of the accept states, in ascending order
+     */
+    public List<Integer> getAccStates() {
+        List<Integer> states = new ArrayList<>();
+        for (int id = acceptStates.nextSetBit(0); id >= 0; id = acceptStates.nextSetBit(id + 1)) {
+            states.add(id);
+        }
+        return states;
+    }
+
+    /**
+     * Returns the IDs of the next states for the given state and input symbol
+     *
+     * @param state -> ID of the state to move from
+     * @param input -> the input symbol for the transition
+     * @return -> the IDs of the next states, in ascending order
+     */
+    public int[] getNextStates(int state, int input) {
+        compact();
+        return Arrays.copyOfRange(targets, offsets[state * 4 + input],
+                offsets[state * 4 + input + 1]);
+    }
+
+    /**
+     * Fetches the number of distinct transitions in the automaton
+     *
+     * @return -> the number of transitions
+     */
+    public int getNumTransitions() {
+        compact();
+        return targets.length;
+    }
+
+    /**
+     * Returns a list of all possible words that can be generated by the automaton
+     * -> performs a depth-first search of the automaton to find all possible words,
+     * given the wordlen specified. If wordLen <= 0, no multi-resolution is used
+     * -> the search keeps its own stack (see WordEnumerator), so long or many
+     * words cannot overflow the call stack
+     *
+     * @param wordLen -> The value of the wordlen (resolution)
+     * @return -> List of all possible words generated by the automaton
+     * @throws IllegalStateException if wordLen <= 0 and the automaton accepts
+     *                               infinitely many words
+     */
+    public List<String> findWords(int wordLen) {
+        List<String> words = new ArrayList<>();
+        WordEnumerator enumerator = new WordEnumerator(this, wordLen);
+        while (enumerator.hasNext()) {
+            words.add(WordEnumerator.toString(enumerator.nextLong()));
+        }
+        return words;
+    }
+
+    /**
+     * Fetches the list of all transitions in the current automaton
+     * -> Returns list in the form <origin state> <destination state> <symbol>
+     * -> Adds the number of states and a list of all accept states to the top of
+     * the list, where the number of states is followed by the width and height
+     * of the image if they are stored
+     *
+     * @param mode -> The value corresponding to the mode of multi-resolution
+     *             compression
+     * @return -> The list of all accept states and transitions between states
+     */
+    public List<String> getTransitions(int mode) {
+        compact();
+        List<String> str = new ArrayList<>();
+        str.add(hasImageSize() ? numStates + " " + imageWidth + " " + imageHeight : numStates + "");
+
+        StringBuilder line = new StringBuilder();
+        for (int id = acceptStates.nextSetBit(0); id >= 0; id = acceptStates.nextSetBit(id + 1)) {
+            if (line.length() > 0) {
+                line.append(' ');
+            }
+            line.append(id);
+        }
+        str.add(line.toString());
+
+        // checkerboard -> multi-res
+        if (mode == 2) {
+            str.add("0 0 0");
+            str.add("0 0 1");
+            str.add("0 0 2");
+            str.add("0 0 3");
+        }
+
+        for (int state = 0; state < numStates; state++) {
+            for (int input = 0; input < 4; input++) {
+                for (int i = offsets[state * 4 + input]; i < offsets[state * 4 + input + 1]; i++) {
+                    str.add(state + " " + targets[i] + " " + input);
+                }
+            }
+        }
+        return str;
+    }
+
+    /**
+     * Builds an automaton from the lines of the _cmp.txt format, as returned by
+     * getTransitions
+     *
+     * @param lines -> no. of states (and image size), accept states, then
+     *              "si sf symbol" lines
+     * @return -> the automaton described by the lines
+     * @throws NumberFormatException     if a line does not hold numbers
+     * @throws IndexOutOfBoundsException if a line refers to a missing state
+     */
+    public static DenseAutomaton fromTransitions(List<String> lines) {
+        DenseAutomaton automaton = new DenseAutomaton();
+        String[] header = lines.get(0).trim().split("\\s+");
+        automaton.addState(Integer.parseInt(header[0]) - 1);
+        if (header.length == 3) {
+            automaton.setImageSize(Integer.parseInt(header[1]), Integer.parseInt(header[2]));
+        }
+        for (String state : lines.get(1).trim().split("\\s+")) {
+            if (!state.isEmpty()) {
+                automaton.addAcceptState(Integer.parseInt(state));
+            }
+        }
+        for (int i = 2; i < lines.size(); i++) {
+            String[] transition = lines.get(i).trim().split("\\s+");
+            automaton.addTransition(Integer.parseInt(transition[0]),
+                    Integer.parseInt(transition[1]), Integer.parseInt(transition[2]));
+        }
+        return automaton;
+    }
+
+    /**
+     * Finds the states from which an accept state can be reached
+     * -> breadth-first search backwards from the accept states
+     *
+     * @return -> live[state] = true if an accept state can be reached from the
+     *         state
+     */
+    boolean[] findLiveStates() {
+        compact();
+        int[] reverseOffsets = new int[numStates + 1];
+        for (int target : targets) {
+            reverseOffsets[target + 1]++;
+        }
+        for (int state = 0; state < numStates; state++) {
+            reverseOffsets[state + 1] += reverseOffsets[state];
+        }
+        int[] sources = new int[targets.length];
+        int[] fill = Arrays.copyOf(reverseOffsets, numStates);
+        for (int state = 0; state < numStates; state++) {
+            for (int i = offsets[state * 4]; i < offsets[state * 4 + 4]; i++) {
+                sources[fill[targets[i]]++] = state;
+            }
+        }
+
+        boolean[] live = new boolean[numStates];
+        int[] queue = new int[numStates];
+        int tail = 0;
+        for (int state = acceptStates.nextSetBit(0); state >= 0 && state < numStates;
+                state = acceptStates.nextSetBit(state + 1)) {
+            live[state] = true;
+            queue[tail++] = state;
+        }
+        for (int head = 0; head < tail; head++) {
+            int state = queue[head];
+            for (int i = reverseOffsets[state]; i < reverseOffsets[state + 1]; i++) {
+                if (!live[sources[i]]) {
+                    live[sources[i]] = true;
+                    queue[tail++] = sources[i];
+                }
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Fetches the CSR offsets of the transition table
+     * -> the array is shared and must not be modified
+     *
+     * @return -> offsets, indexed by state * 4 + symbol, of length
+     *         no. of states * 4 + 1
+     */
+    int[] offsets() {
+        compact();
+        return offsets;
+    }
+
+    /**
+     * Fetches the CSR targets of the transition table
+     * -> the array is shared and must not be modified
+     *
+     * @return -> the next states of every transition, grouped by (state, symbol)
+     */
+    int[] targets() {
+        compact();
+        return targets;
+    }
+
+    /**
+     * Checks that the given state exists
+     *
+     * @param id -> ID of the state
+     * @throws IndexOutOfBoundsException if the state does not exist
+     */
+    private void checkState(int id) {
+        if (id < 0 || id >= numStates) {
+            throw new IndexOutOfBoundsException("Invalid state " + id);
+        }
+    }
+
+    /**
+     * Builds the CSR table from the edge list, if it is out of date
+     * -> a counting sort groups the edges by (state, symbol), then the targets
+     * of each group are sorted and duplicates dropped
+     */
+    private void compact() {
+        if (offsets != null) {
+            return;
+        }
+
+        int keys = numStates * 4;
+        int[] start = new int[keys + 1];
+        for (int e = 0; e < numEdges; e++) {
+            start[edges[e * 2] + 1]++;
+        }
+        for (int k = 0; k < keys; k++) {
+            start[k + 1] += start[k];
+        }
+        int[] sorted = new int[numEdges];
+        int[] next = Arrays.copyOf(start, keys);
+        for (int e = 0; e < numEdges; e++) {
+            sorted[next[edges[e * 2]]++] = edges[e * 2 + 1];
+        }
+
+        int[] csr = new int[keys + 1];
+        int n = 0;
+        for (int k = 0; k < keys; k++) {
+            csr[k] = n;
+            Arrays.sort(sorted, start[k], start[k + 1]);
+            for (int i = start[k]; i < start[k + 1]; i++) {
+                if (i == start[k] || sorted[i] != sorted[i - 1]) {
+                    sorted[n++] = sorted[i];
+                }
+            }
+        }
+        csr[keys] = n;
+
+        targets = n == numEdges ? sorted : Arrays.copyOf(sorted, n);
+        offsets = csr;
+    }
+}
@@ -0,0 +1,392 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The GrayscaleCompressor class compresses 8-bit grayscale images as eight
+ * black and white bit planes (the "_cmp.gray" format)
+ * -> plane b is black wherever bit b of the pixel's darkness (255 - gray) is
+ * set, so a black and white image gives eight copies of itself and a white
+ * image gives eight empty planes
+ * -> every plane goes through the usual pipeline (QuadtreeScanner,
+ * QuadtreeDfa), and the planes are compressed and decompressed in parallel on
+ * a ForkJoinPool
+ * -> layout:
+ * magic "QTG" + version byte
+ * varint depth (the canvas is 2^depth x 2^depth pixels)
+ * (version 2 only) varint width and height of the image, for an image that
+ * is not a square whose width is a power of two: the planes describe the
+ * white canvas with the image in its top left corner (see Compress.canvasSize)
+ * byte no. of planes
+ * for each plane, least significant first: varint no. of bytes, then the
+ * plane's automaton in the _cmp.bin format (see BinaryAutomatonFormat)
+ * -> the length of every plane is stored, so the planes can be decoded
+ * independently of each other
+ */
+public class GrayscaleCompressor {
+    public static final String EXTENSION = ".gray";
+    public static final int PLANES = 8;
+
+    private static final byte[] MAGIC = {'Q', 'T', 'G'};
+    private static final byte VERSION = 1;
+    private static final byte VERSION_SIZED = 2;
+
+    /**
+     * Compresses the given image into a grayscale container
+     * -> the container is built in memory and the file is only created once
+     * every plane is compressed, so a failed compression leaves no file behind
+     *
+     * @param image   -> the image to compress
+     * @param path    -> the file to create
+     * @param threads -> no. of planes compressed at once
+     * @param stats   -> the statistics to add the counters to
+     * @throws IOException if the file cannot be written
+     */
+    public static void compress(BufferedImage image, Path path, int threads, CompressStats stats)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compress(image, out, threads, stats);
+        stats.begin("write");
+        Files.write(path, out.toByteArray());
+        stats.end();
+    }
+
+    /**
+     * Compresses the given image into a grayscale container written to a
+     * stream
+     * -> the planes are all compressed before the first byte is written, and
+     * the stream is not closed
+     *
+     * @param image   -> the image to compress
+     * @param out     -> the stream to write to
+     * @param threads -> no. of planes compressed at once
+     * @param stats   -> the statistics to add the counters to
+     * @throws IOException if the stream cannot be written
+     */
+    public static void compress(BufferedImage image, OutputStream out, int threads,
+            CompressStats stats) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean sized = Compress.needsImageSize(width, height);
+        int depth = Compress.maxWordLength(Compress.canvasSize(width, height));
+        stats.set(CompressStats.Counter.PIXELS, (long) width * height);
+
+        stats.begin("read");
+        byte[] darkness = readDarkness(image);
+
+        stats.begin("scan");
+        DenseAutomaton[] planes = new DenseAutomaton[PLANES];
+        byte[][] encoded = new byte[PLANES][];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            run(pool, () -> IntStream.range(0, PLANES).parallel().forEach(bit -> {
+                planes[bit] = compressPlane(darkness, width, height, bit);
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try {
+                    BinaryAutomatonFormat.write(planes[bit], bytes);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                encoded[bit] = bytes.toByteArray();
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        for (DenseAutomaton plane : planes) {
+            stats.add(CompressStats.Counter.STATES, plane.getNumStates());
+            stats.add(CompressStats.Counter.TRANSITIONS, plane.getNumTransitions());
+        }
+
+        stats.begin("write");
+        out.write(MAGIC);
+        out.write(sized ? VERSION_SIZED : VERSION);
+        BinaryAutomatonFormat.writeVarint(out, depth);
+        if (sized) {
+            BinaryAutomatonFormat.writeVarint(out, width);
+            BinaryAutomatonFormat.writeVarint(out, height);
+        }
+        out.write(PLANES);
+        for (byte[] plane : encoded) {
+            BinaryAutomatonFormat.writeVarint(out, plane.length);
+            out.write(plane);
+        }
+        out.flush();
+        stats.end();
+    }
+
+    /**
+     * Decompresses a grayscale container into an image
+     * -> every plane is decoded and rendered on its own, then the planes are
+     * combined one row at a time
+     *
+     * @param path    -> the file to read
+     * @param threads -> no. of planes decompressed at once
+     * @param stats   -> the statistics to add the counters to
+     * @return -> the decompressed image, of type TYPE_BYTE_GRAY
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid container
+     */
+    public static BufferedImage decompress(Path path, int threads, CompressStats stats)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+            return decompress(buffer, threads, stats);
+        }
+    }
+
+    /**
+     * Decompresses a grayscale container held in a buffer into an image
+     *
+     * @param buffer  -> buffer positioned at the start of the magic bytes
+     * @param threads -> no. of planes decompressed at once
+     * @param stats   -> the statistics to add the counters to
+     * @return -> the decompressed image, of type TYPE_BYTE_GRAY
+     * @throws IllegalArgumentException if the buffer is not a valid container
+     */
+    public static BufferedImage decompress(ByteBuffer buffer, int threads, CompressStats stats) {
+        stats.begin("read");
+        int depth;
+        int width = 0;
+        int height = 0;
+        ByteBuffer[] encoded = new ByteBuffer[PLANES];
+        try {
+            for (byte b : MAGIC) {
+                if (buffer.get() != b) {
+                    throw new IllegalArgumentException(
+                            "Decompress Error - Invalid automaton formatting");
+                }
+            }
+            byte version = buffer.get();
+            if (version != VERSION && version != VERSION_SIZED) {
+                throw new IllegalArgumentException(
+                        "Decompress Error - Invalid automaton formatting");
+            }
+            depth = BinaryAutomatonFormat.readVarint(buffer);
+            // pixel indices of the canvas must fit in an int
+            if (depth < 0 || depth > 15) {
+                throw new IllegalArgumentException(
+                        "Decompress Error - Invalid automaton formatting");
+            }
+            width = 1 << depth;
+            height = width;
+            if (version == VERSION_SIZED) {
+                width = BinaryAutomatonFormat.readVarint(buffer);
+                height = BinaryAutomatonFormat.readVarint(buffer);
+                if (width < 1 || height < 1
+                        || Compress.canvasSize(width, height) != 1 << depth) {
+                    throw new IllegalArgumentException("Decompress Error - Invalid image size");
+                }
+            }
+            if (buffer.get() != PLANES) {
+                throw new IllegalArgumentException(
+                        "Decompress Error - Invalid automaton formatting");
+            }
+            for (int bit = 0; bit < PLANES; bit++) {
+                int length = BinaryAutomatonFormat.readVarint(buffer);
+                encoded[bit] = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException(
+                    "Decompress Error - Invalid automaton formatting");
+        }
+
+        stats.begin("render");
+        int side = 1 << depth;
+        long[][] planes = new long[PLANES][];
+        int[][] sizes = new int[PLANES][2]; // {states, transitions}
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            run(pool, () -> IntStream.range(0, PLANES).parallel().forEach(bit -> {
+                DenseAutomaton plane = BinaryAutomatonFormat.read(encoded[bit]);
+                sizes[bit][0] = plane.getNumStates();
+                sizes[bit][1] = plane.getNumTransitions();
+                planes[bit] = renderPlane(plane, side);
+            }));
+
+            int imageWidth = width;
+            int imageHeight = height;
+            BufferedImage image = new BufferedImage(imageWidth, imageHeight,
+                    BufferedImage.TYPE_BYTE_GRAY);
+            byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            run(pool, () -> IntStream.range(0, imageHeight).parallel().forEach(y -> {
+                for (int x = 0; x < imageWidth; x++) {
+                    int i = y * side + x;
+                    int dark = 0;
+                    for (int bit = 0; bit < PLANES; bit++) {
+                        dark |= (int) (planes[bit][i >> 6] >>> i & 1) << bit;
+                    }
+                    pixels[y * imageWidth + x] = (byte) (255 - dark);
+                }
+            }));
+
+            for (int[] size : sizes) {
+                stats.add(CompressStats.Counter.STATES, size[0]);
+                stats.add(CompressStats.Counter.TRANSITIONS, size[1]);
+            }
+            stats.set(CompressStats.Counter.PIXELS, (long) imageWidth * imageHeight);
+            stats.end();
+            return image;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Checks whether the given file contents start with the magic bytes of a
+     * grayscale container
+     *
+     * @param data -> the contents of a file
+     * @return -> true if the magic bytes match, false otherwise
+     */
+    public static boolean hasMagic(byte[] data) {
+        if (data.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs the given task on the pool and waits for it
+     * -> an exception thrown by the task on another thread may come back
+     * wrapped by the pool, so the original exception is rethrown instead
+     *
+     * @param pool -> the pool to run the task on
+     * @param task -> the task to run
+     */
+    private static void run(ForkJoinPool pool, Runnable task) {
+        try {
+            pool.submit(task).join();
+        } catch (RuntimeException e) {
+            Throwable cause = e;
+            while (cause.getCause() instanceof RuntimeException) {
+                cause = cause.getCause();
+            }
+            throw (RuntimeException) cause;
+        }
+    }
+
+    /**
+     * Reads the darkness (255 - gray level) of every pixel of the given image
+     * -> grayscale images are read from their raster, other images are
+     * converted with the ITU-R BT.601 luma weights
+     *
+     * @param image -> the image to read
+     * @return -> the darkness of each pixel, row by row
+     */
+    private static byte[] readDarkness(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] darkness = new byte[width * height];
+        int[] row = new int[width];
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            Raster raster = image.getRaster();
+            for (int y = 0; y < height; y++) {
+                raster.getSamples(0, y, width, 1, 0, row);
+                for (int x = 0; x < width; x++) {
+                    darkness[y * width + x] = (byte) (255 - row[x]);
+                }
+            }
+        } else {
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                for (int x = 0; x < width; x++) {
+                    int r = row[x] >> 16 & 0xFF;
+                    int g = row[x] >> 8 & 0xFF;
+                    int b = row[x] & 0xFF;
+                    int gray = (299 * r + 587 * g + 114 * b + 500) / 1000;
+                    darkness[y * width + x] = (byte) (255 - gray);
+                }
+            }
+        }
+        return darkness;
+    }
+
+    /**
+     * Compresses one bit plane of an image into an automaton
+     * -> the plane is scanned straight from the darkness bytes, so only its
+     * summed-area table is allocated
+     * -> the plane is scanned on the canvas of the image, so every plane of the
+     * image has the same depth
+     *
+     * @param darkness -> the darkness of each pixel, row by row
+     * @param width    -> width of the image
+     * @param height   -> height of the image
+     * @param bit      -> the bit of the darkness that is black in the plane
+     * @return -> the automaton of the plane
+     */
+    private static DenseAutomaton compressPlane(byte[] darkness, int width, int height,
+            int bit) {
+        NodeTable table = new NodeTable();
+        int root = new QuadtreeScanner(darkness, width, height, bit).buildTree(table,
+                Compress.maxWordLength(Compress.canvasSize(width, height)));
+        return QuadtreeDfa.fromTree(table, root).toDenseAutomaton();
+    }
+
+    /**
+     * Renders one bit plane into a bitmap
+     * -> the automaton is rendered at the size of its longest word and scaled
+     * up to the size of the image, as every shorter word fills a larger square
+     *
+     * @param plane -> the automaton of the plane
+     * @param side  -> width and height of the canvas
+     * @return -> one bit per pixel, row by row, set where the plane is black
+     * @throws IllegalArgumentException if the plane does not fit the canvas
+     */
+    private static long[] renderPlane(DenseAutomaton plane, int side) {
+        if (plane.hasImageSize()) { // the size of the image is stored once, in the container
+            throw new IllegalArgumentException("Decompress Error - Invalid automaton formatting");
+        }
+        BufferedImage image;
+        try {
+            image = new AutomatonRenderer(plane).render(-1);
+        } catch (IllegalStateException e) {
+            throw new IllegalArgumentException("Decompress Error - Invalid automaton formatting");
+        }
+        int rendered = image.getWidth();
+        if (rendered > side) {
+            throw new IllegalArgumentException("Decompress Error - Invalid automaton formatting");
+        }
+        int shift = Integer.numberOfTrailingZeros(side / rendered);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int stride = (rendered + 7) >> 3;
+
+        long[] bits = new long[(int) (((long) side * side + 63) >> 6)];
+        for (int y = 0; y < side; y++) {
+            int from = (y >> shift) * stride;
+            for (int x = 0; x < side; x++) {
+                int column = x >> shift;
+                if ((pixels[from + (column >> 3)] & 0x80 >>> (column & 7)) == 0) { // black
+                    int i = y * side + x;
+                    bits[i >> 6] |= 1L << i;
+                }
+            }
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,269 @@
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The IncrementalCompressor class keeps the quadtree of an image between
+ * edits, so an image that changed inside a small rectangle is recompressed
+ * without scanning it again
+ * -> the quadtree is kept as canonical nodes in a NodeTable (see NodeTable),
+ * and every canonical node is one state of the automaton (see QuadtreeDfa)
+ * -> an update reads only the pixels inside the dirty rectangle: quadrants
+ * outside it keep their node, quadrants inside it are rescanned, and every
+ * quadrant on its border is rebuilt from its four quarters, so an update
+ * visits about (edited area + perimeter x depth) quadrants instead of the
+ * whole image
+ * -> unchanged subtrees, and any new subtree equal to an existing one, share
+ * the canonical nodes (and states) already in the table
+ * -> nodes left unreachable by updates are dropped once they outnumber the
+ * nodes of the tree, by copying the tree into a fresh table; a table shared
+ * with other images is never copied (see SequenceCompressor)
+ * -> the transitions match those of Compress.compressFile for the edited image
+ * line for line
+ */
+public class IncrementalCompressor {
+    private final int width;
+    private final int height;
+    private final int side; // width and height of the canvas
+    private final int maxWordLen;
+
+    private final boolean shared; // the table holds the nodes of other images
+    private NodeTable table;
+    private int root;
+    private int liveNodes; // nodes of the tree after the last full scan or copy
+    private long nodesVisited = 0;
+
+    /**
+     * Constructs the compression state of an image by scanning it whole
+     *
+     * @param image -> the image to compress
+     */
+    public IncrementalCompressor(BufferedImage image) {
+        this(image, new NodeTable(), false);
+    }
+
+    /**
+     * Constructs the compression state of an image by scanning it whole into
+     * a table shared with other images
+     * -> the nodes are only ever added to the table, so the IDs of the other
+     * images stay valid
+     *
+     * @param image -> the image to compress
+     * @param table -> the table to add the quadtree nodes to
+     */
+    public IncrementalCompressor(BufferedImage image, NodeTable table) {
+        this(image, table, true);
+    }
+
+    /**
+     * Constructs the compression state of an image by scanning it whole
+     *
+     * @param image  -> the image to compress
+     * @param table  -> the table to add the quadtree nodes to
+     * @param shared -> whether the table holds the nodes of other images
+     */
+    private IncrementalCompressor(BufferedImage image, NodeTable table, boolean shared) {
+        this.table = table;
+        this.shared = shared;
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.side = Compress.canvasSize(width, height);
+        this.maxWordLen = Compress.maxWordLength(side);
+
+        QuadtreeScanner scanner = new QuadtreeScanner(image);
+        this.root = scanner.buildTree(table, maxWordLen);
+        this.nodesVisited = scanner.getNodesVisited();
+        this.liveNodes = table.size();
+    }
+
+    /**
+     * Finds the rectangle holding every pixel that differs between two images
+     * of the same size
+     * -> pixels are compared by their raster samples, so a pixel whose samples
+     * changed is included even if it stayed black (or not black)
+     *
+     * @param before -> the image before the edit
+     * @param after  -> the image after the edit
+     * @return -> the smallest rectangle holding every changed pixel (empty if
+     *         none changed), or null if the images cannot be compared
+     */
+    public static Rectangle changedRegion(BufferedImage before, BufferedImage after) {
+        Raster a = before.getRaster();
+        Raster b = after.getRaster();
+        if (a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight()
+                || a.getNumBands() != b.getNumBands()
+                || !before.getColorModel().equals(after.getColorModel())) {
+            return null;
+        }
+
+        int width = a.getWidth();
+        int bands = a.getNumBands();
+        int[] rowA = new int[width * bands];
+        int[] rowB = new int[width * bands];
+        int left = width;
+        int right = -1;
+        int top = -1;
+        int bottom = -1;
+        for (int y = 0; y < a.getHeight(); y++) {
+            a.getPixels(0, y, width, 1, rowA);
+            b.getPixels(0, y, width, 1, rowB);
+            int first = Arrays.mismatch(rowA, rowB);
+            if (first < 0) {
+                continue;
+            }
+            int last = rowA.length - 1;
+            while (rowA[last] == rowB[last]) {
+                last--;
+            }
+            left = Math.min(left, first / bands);
+            right = Math.max(right, last / bands);
+            if (top < 0) {
+                top = y;
+            }
+            bottom = y;
+        }
+        if (top < 0) {
+            return new Rectangle();
+        }
+        return new Rectangle(left, top, right - left + 1, bottom - top + 1);
+    }
+
+    /**
+     * Updates the compression state to an edited version of the image
+     * -> only the pixels inside the dirty rectangle are read, so every pixel
+     * that changed since the last scan or update must lie inside it
+     * -> the part of the rectangle outside the image is ignored
+     *
+     * @param image -> the edited image, of the same width and height
+     * @param dirty -> the rectangle holding every changed pixel
+     * @throws IllegalArgumentException if the image is not the same size
+     */
+    public void update(BufferedImage image, Rectangle dirty) {
+        if (image.getWidth() != width || image.getHeight() != height) {
+            throw new IllegalArgumentException("Compress Error - Invalid image size");
+        }
+        Rectangle region = dirty.intersection(new Rectangle(0, 0, width, height));
+        if (region.isEmpty()) {
+            nodesVisited = 0;
+            return;
+        }
+
+        QuadtreeScanner scanner = new QuadtreeScanner(image, region.x, region.y, region.width,
+                region.height, side);
+        nodesVisited = 0;
+        root = rebuild(scanner, region, root, 0, 0, side, maxWordLen);
+        nodesVisited += scanner.getNodesVisited();
+
+        if (!shared && table.size() > 2 * liveNodes) {
+            NodeTable live = new NodeTable();
+            root = live.copy(table, root);
+            table = live;
+            liveNodes = table.size();
+        }
+    }
+
+    /**
+     * Recursively rebuilds the node of a quadrant that may intersect the dirty
+     * rectangle
+     * -> children are rebuilt in the order
+     * | 1 3 |
+     * | 0 2 |
+     *
+     * @param scanner    -> scanner over the dirty rectangle
+     * @param region     -> the dirty rectangle, inside the image
+     * @param id         -> ID of the node of the quadrant before the edit
+     * @param x          -> x-coordinate of the top left corner of the quadrant
+     * @param y          -> y-coordinate of the top left corner of the quadrant
+     * @param size       -> width and height of the quadrant
+     * @param maxWordLen -> the remaining recursive depth
+     * @return -> ID of the node of the quadrant after the edit
+     */
+    private int rebuild(QuadtreeScanner scanner, Rectangle region, int id, int x, int y,
+            int size, int maxWordLen) {
+        nodesVisited++;
+        // the part of the quadrant inside the image (the rest is always white)
+        int right = Math.min(x + size, width);
+        int bottom = Math.min(y + size, height);
+        if (right <= region.x || bottom <= region.y || x >= region.x + region.width
+                || y >= region.y + region.height) {
+            return id; // untouched by the edit
+        }
+        if (x >= region.x && y >= region.y && right <= region.x + region.width
+                && bottom <= region.y + region.height) {
+            return scanner.buildTree(table, x, y, size, maxWordLen);
+        }
+
+        int half = size / 2;
+        int c0 = rebuild(scanner, region, quarter(id, 0), x, y + half, half, maxWordLen - 1);
+        int c1 = rebuild(scanner, region, quarter(id, 1), x, y, half, maxWordLen - 1);
+        int c2 = rebuild(scanner, region, quarter(id, 2), x + half, y + half, half,
+                maxWordLen - 1);
+        int c3 = rebuild(scanner, region, quarter(id, 3), x + half, y, half, maxWordLen - 1);
+        return table.merge(c0, c1, c2, c3);
+    }
+
+    /**
+     * Fetches the node of one quarter of a quadrant
+     * -> the quarters of a black quadrant are black, and the quarters of an
+     * EMPTY quadrant are EMPTY
+     *
+     * @param id     -> ID of the node of the quadrant
+     * @param symbol -> the quarter {0, 1, 2, 3}
+     * @return -> ID of the node of the quarter
+     */
+    private int quarter(int id, int symbol) {
+        if (id == NodeTable.EMPTY || table.isAccepting(id)) {
+            return id;
+        }
+        return table.child(id, symbol);
+    }
+
+    /**
+     * Lists the transitions of the current image, as in the _cmp.txt format
+     *
+     * @param multiResMode -> value for multi-res compression mode {0,1,2,3}
+     * @return -> the no. of states (and image size), accept states, and all
+     *         transitions between states
+     */
+    public List<String> getTransitions(int multiResMode) {
+        List<String> output = Compress.buildTransitions(table, root, multiResMode);
+        if (Compress.needsImageSize(width, height)) {
+            output.set(0, output.get(0) + " " + width + " " + height);
+        }
+        return output;
+    }
+
+    /**
+     * Fetches the table holding the quadtree
+     * -> replaced by a fresh table when an update drops unreachable nodes
+     *
+     * @return -> the table
+     */
+    public NodeTable getTable() {
+        return table;
+    }
+
+    /**
+     * Fetches the root of the quadtree
+     *
+     * @return -> ID of the root node, or NodeTable.EMPTY if the image is white
+     */
+    public int getRoot() {
+        return root;
+    }
+
+    /**
+     * Fetches the no. of quadrants visited by the last scan or update
+     *
+     * @return -> the no. of quadrants visited
+     */
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+}
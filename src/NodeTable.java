@@ -0,0 +1,223 @@
+import java.util.Arrays;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The NodeTable class stores canonical (hash-consed) quadtree nodes
+ * -> each node is an accept flag plus the IDs of its four children, where
+ * EMPTY means "no black pixels / no words below this symbol"
+ * -> structurally equal nodes are stored once and share one ID, so two
+ * quadrants with the same content (the same residual language) are the same
+ * node and become the same automaton state
+ * -> lookups use open addressing over primitive arrays, so interning a node is
+ * O(1) expected and allocates nothing unless the table grows
+ */
+public class NodeTable {
+    public static final int EMPTY = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] children;
+    private boolean[] accepting;
+    private int[] slots; // node ID + 1, 0 = free slot
+    private int size = 0;
+
+    /**
+     * Constructs a new, empty NodeTable
+     */
+    public NodeTable() {
+        children = new int[INITIAL_CAPACITY * 4];
+        accepting = new boolean[INITIAL_CAPACITY];
+        slots = new int[INITIAL_CAPACITY * 2];
+    }
+
+    /**
+     * Returns the ID of the node for an all black quadrant
+     * -> accepts the empty word and has no transitions
+     *
+     * @return -> ID of the black leaf node
+     */
+    public int black() {
+        return intern(true, EMPTY, EMPTY, EMPTY, EMPTY);
+    }
+
+    /**
+     * Returns the ID of the node for a quadrant that was split into the four
+     * given children
+     * -> a quadrant without any black children is EMPTY
+     *
+     * @param c0 -> ID of child 0 (bottom left)
+     * @param c1 -> ID of child 1 (top left)
+     * @param c2 -> ID of child 2 (bottom right)
+     * @param c3 -> ID of child 3 (top right)
+     * @return -> ID of the canonical node, or EMPTY
+     */
+    public int node(int c0, int c1, int c2, int c3) {
+        if (c0 == EMPTY && c1 == EMPTY && c2 == EMPTY && c3 == EMPTY) {
+            return EMPTY;
+        }
+        return intern(false, c0, c1, c2, c3);
+    }
+
+    /**
+     * Returns the ID of the node for a square quadrant whose four quarters are
+     * the given nodes, as if the quadrant had been scanned as a whole
+     * -> four black quarters make a black quadrant
+     * -> four EMPTY quarters make an EMPTY quadrant
+     * -> used to merge separately scanned quadrants bottom-up
+     *
+     * @param c0 -> ID of quarter 0 (bottom left)
+     * @param c1 -> ID of quarter 1 (top left)
+     * @param c2 -> ID of quarter 2 (bottom right)
+     * @param c3 -> ID of quarter 3 (top right)
+     * @return -> ID of the canonical node, or EMPTY
+     */
+    public int merge(int c0, int c1, int c2, int c3) {
+        int black = black();
+        if (c0 == black && c1 == black && c2 == black && c3 == black) {
+            return black;
+        }
+        return node(c0, c1, c2, c3);
+    }
+
+    /**
+     * Returns the ID of the canonical node with the given accept flag and
+     * children, adding it to the table if it is not there yet
+     *
+     * @param accept -> whether the node accepts the empty word
+     * @param c0     -> ID of child 0
+     * @param c1     -> ID of child 1
+     * @param c2     -> ID of child 2
+     * @param c3     -> ID of child 3
+     * @return -> ID of the canonical node
+     */
+    public int intern(boolean accept, int c0, int c1, int c2, int c3) {
+        int mask = slots.length - 1;
+        int slot = hash(accept, c0, c1, c2, c3) & mask;
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            int base = id * 4;
+            if (accepting[id] == accept && children[base] == c0 && children[base + 1] == c1
+                    && children[base + 2] == c2 && children[base + 3] == c3) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == accepting.length) {
+            grow();
+            return intern(accept, c0, c1, c2, c3);
+        }
+        int id = size++;
+        int base = id * 4;
+        children[base] = c0;
+        children[base + 1] = c1;
+        children[base + 2] = c2;
+        children[base + 3] = c3;
+        accepting[id] = accept;
+        slots[slot] = id + 1;
+        return id;
+    }
+
+    /**
+     * Copies the subtree rooted at the given node of another table into this
+     * table
+     *
+     * @param from -> the table holding the subtree
+     * @param root -> ID of the subtree's root in that table
+     * @return -> ID of the subtree's root in this table
+     */
+    public int copy(NodeTable from, int root) {
+        int[] copied = new int[from.size()];
+        Arrays.fill(copied, EMPTY);
+        return copy(from, root, copied);
+    }
+
+    /**
+     * Recursively copies a subtree, copying every shared node only once
+     *
+     * @param from   -> the table holding the subtree
+     * @param id     -> ID of the node in that table
+     * @param copied -> IDs in this table of the nodes copied so far
+     * @return -> ID of the node in this table
+     */
+    private int copy(NodeTable from, int id, int[] copied) {
+        if (id == EMPTY) {
+            return EMPTY;
+        }
+        if (copied[id] == EMPTY) {
+            int c0 = copy(from, from.child(id, 0), copied);
+            int c1 = copy(from, from.child(id, 1), copied);
+            int c2 = copy(from, from.child(id, 2), copied);
+            int c3 = copy(from, from.child(id, 3), copied);
+            copied[id] = intern(from.isAccepting(id), c0, c1, c2, c3);
+        }
+        return copied[id];
+    }
+
+    /**
+     * Returns the child of the given node for the given input symbol
+     *
+     * @param id     -> ID of the node
+     * @param symbol -> input symbol {0, 1, 2, 3}
+     * @return -> ID of the child, or EMPTY
+     */
+    public int child(int id, int symbol) {
+        return children[id * 4 + symbol];
+    }
+
+    /**
+     * Checks whether the given node accepts the empty word (is black)
+     *
+     * @param id -> ID of the node
+     * @return -> true if the node is accepting, false otherwise
+     */
+    public boolean isAccepting(int id) {
+        return accepting[id];
+    }
+
+    /**
+     * Fetches and returns the number of canonical nodes in the table
+     *
+     * @return -> the number of nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Doubles the node arrays and rehashes every node into a new slot array
+     */
+    private void grow() {
+        int capacity = accepting.length * 2;
+        children = Arrays.copyOf(children, capacity * 4);
+        accepting = Arrays.copyOf(accepting, capacity);
+        slots = new int[capacity * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int base = id * 4;
+            int slot = hash(accepting[id], children[base], children[base + 1],
+                    children[base + 2], children[base + 3]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Hashes the contents of a node
+     *
+     * @return -> the hash of the node
+     */
+    private static int hash(boolean accept, int c0, int c1, int c2, int c3) {
+        int h = accept ? 0x9E3779B9 : 0;
+        h = (h ^ c0) * 0x85EBCA6B;
+        h = (h ^ c1) * 0xC2B2AE35;
+        h = (h ^ c2) * 0x85EBCA6B;
+        h = (h ^ c3) * 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,106 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Iterator;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The PngWriter class writes decompressed images as PNG files through an
+ * ImageWriter, with a chosen deflate level
+ * -> a 1-bit TYPE_BYTE_BINARY image (black and white palette) is written as
+ * a 1-bit grayscale PNG, so the file holds 8 pixels per byte before deflate
+ * -> level 0 stores the pixels without compressing them (fastest), level 9
+ * compresses hardest (smallest file)
+ * -> images can be written to a file or, for images kept in memory (see
+ * CompressServer), to any stream
+ */
+public class PngWriter {
+    public static final int DEFAULT_LEVEL = -1;
+    public static final int MAX_LEVEL = 9;
+
+    /**
+     * Writes the given image to a PNG file
+     *
+     * @param image -> the image to write
+     * @param file  -> the file to create (replaced if it exists)
+     * @param level -> the deflate level (0-9), or DEFAULT_LEVEL for the
+     *              writer's default
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(BufferedImage image, File file, int level) throws IOException {
+        // the stream writes over an existing file without truncating it
+        Files.deleteIfExists(file.toPath());
+        try (ImageOutputStream out = new FileImageOutputStream(file)) {
+            write(image, out, level);
+        }
+    }
+
+    /**
+     * Writes the given image as a PNG file to a stream
+     * -> the stream is not closed
+     *
+     * @param image -> the image to write
+     * @param out   -> the stream to write to
+     * @param level -> the deflate level (0-9), or DEFAULT_LEVEL for the
+     *              writer's default
+     * @throws IOException if the stream cannot be written
+     */
+    public static void write(BufferedImage image, OutputStream out, int level)
+            throws IOException {
+        try (ImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+            write(image, stream, level);
+        }
+    }
+
+    /**
+     * Writes the given image as a PNG file to an image stream
+     *
+     * @param image -> the image to write
+     * @param out   -> the stream to write to
+     * @param level -> the deflate level, or DEFAULT_LEVEL
+     * @throws IOException if the stream cannot be written
+     */
+    private static void write(BufferedImage image, ImageOutputStream out, int level)
+            throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
+        if (!writers.hasNext()) {
+            throw new IOException("No PNG writer");
+        }
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (level != DEFAULT_LEVEL) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality(level));
+        }
+
+        try {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Converts a deflate level to the compression quality of the PNG writer
+     * -> the writer uses the level 9 - round(9 * quality)
+     *
+     * @param level -> the deflate level (0-9)
+     * @return -> the compression quality (0-1)
+     */
+    private static float quality(int level) {
+        return (float) (MAX_LEVEL - level) / MAX_LEVEL;
+    }
+}
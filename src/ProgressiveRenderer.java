@@ -0,0 +1,227 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The ProgressiveRenderer class decodes an automaton one level of detail at a
+ * time
+ * -> the image at depth d is 2^d x 2^d pixels, one pixel per quadrant of
+ * depth d (a word of length d)
+ * -> a pixel is black once its quadrant is known to be black, white once no
+ * accepted word can reach it, and grey while it is still undecided
+ * -> each level refines the previous one: only the frontier of undecided
+ * (state, quadrant) pairs is expanded, the decided pixels are scaled up
+ * -> the last level is the image AutomatonRenderer renders, so a caller can
+ * show coarse previews first and stop at any depth
+ * -> an automaton that stores its image size is decoded on the whole canvas,
+ * and each level is cropped to the image scaled to that level
+ */
+public class ProgressiveRenderer {
+    public static final int WHITE = 0xFFFFFF;
+    public static final int GREY = 0x808080;
+    public static final int BLACK = 0;
+
+    /**
+     * Receives the levels of a progressive decode as they are completed
+     */
+    public interface LevelListener {
+
+        /**
+         * Called when a level has been decoded
+         *
+         * @param depth -> the depth of the level (log2 of its width)
+         * @param image -> the image of the level, which is not changed later
+         * @return -> true to decode the next level, false to stop
+         */
+        boolean levelCompleted(int depth, BufferedImage image);
+    }
+
+    private final int numStates;
+    private final int[] offsets;
+    private final int[] targets;
+    private final boolean[] accept;
+    private final AutomatonRenderer renderer;
+    private final int wordLen;
+    private final int maxDepth;
+
+    private int depth = 0;
+    private int[] pixels = {WHITE};
+    private int[] frontierStates = new int[1]; // undecided (state, quadrant) pairs
+    private int[] frontierSquares = new int[1]; // quadrant = y * 2^depth + x
+    private int frontierSize = 0;
+
+    /**
+     * Constructs a new progressive decode of the given automaton, positioned
+     * before the first level
+     *
+     * @param automaton -> the automaton to decode
+     * @param wordLen   -> the multi-resolution word length, <= 0 for none
+     * @throws IllegalStateException if wordLen <= 0 and the automaton accepts
+     *                               infinitely many words
+     */
+    public ProgressiveRenderer(DenseAutomaton automaton, int wordLen) {
+        this.numStates = automaton.getNumStates();
+        this.offsets = automaton.offsets();
+        this.targets = automaton.targets();
+        this.accept = new boolean[numStates];
+        for (int state = 0; state < numStates; state++) {
+            accept[state] = automaton.isAcceptState(state);
+        }
+        this.renderer = new AutomatonRenderer(automaton);
+        this.wordLen = wordLen;
+        this.maxDepth = Integer.numberOfTrailingZeros(renderer.getSize(wordLen));
+
+        // depth 0: the whole image is one quadrant, decided by the start state
+        if (accept[0] && wordLen <= 0) {
+            pixels[0] = BLACK;
+        } else if (renderer.isLive(0) && maxDepth > 0) {
+            pixels[0] = GREY;
+            frontierStates[0] = 0;
+            frontierSquares[0] = 0;
+            frontierSize = 1;
+        }
+    }
+
+    /**
+     * Fetches the depth of the last level, where the decode is complete
+     *
+     * @return -> log2 of the width of the full image
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Fetches the depth of the level decoded last
+     *
+     * @return -> the current depth, 0 before the first level
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Checks whether there are levels left to decode
+     *
+     * @return -> true if the current depth is below the maximum depth
+     */
+    public boolean hasNextLevel() {
+        return depth < maxDepth;
+    }
+
+    /**
+     * Decodes the next level by refining the current one
+     *
+     * @return -> the image of the next level
+     * @throws IllegalStateException if the last level has been decoded
+     */
+    public BufferedImage nextLevel() {
+        if (!hasNextLevel()) {
+            throw new IllegalStateException("Decompress Error - No more levels");
+        }
+        int side = 1 << depth;
+        int nextSide = side * 2;
+        boolean last = depth + 1 == maxDepth;
+
+        // scale the decided pixels up, undecided ones start out white
+        BufferedImage image = new BufferedImage(nextSide, nextSide, BufferedImage.TYPE_INT_RGB);
+        int[] next = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                int colour = pixels[y * side + x] == BLACK ? BLACK : WHITE;
+                int i = (2 * y) * nextSide + 2 * x;
+                next[i] = colour;
+                next[i + 1] = colour;
+                next[i + nextSide] = colour;
+                next[i + nextSide + 1] = colour;
+            }
+        }
+
+        // expand the frontier by one symbol
+        int[] states = new int[Math.max(frontierSize * 4, 1)];
+        int[] squares = new int[states.length];
+        int size = 0;
+        for (int f = 0; f < frontierSize; f++) {
+            int state = frontierStates[f];
+            int x = frontierSquares[f] % side;
+            int y = frontierSquares[f] / side;
+            for (int input = 0; input < 4; input++) {
+                int childX = 2 * x + (input >> 1);
+                int childY = 2 * y + (~input & 1);
+                int square = childY * nextSide + childX;
+                for (int i = offsets[state * 4 + input]; i < offsets[state * 4 + input + 1]; i++) {
+                    int target = targets[i];
+                    if (!renderer.isLive(target) || next[square] == BLACK) {
+                        continue;
+                    }
+                    boolean black = accept[target] && (wordLen <= 0 || depth + 1 == wordLen);
+                    if (black) {
+                        next[square] = BLACK;
+                    } else if (!last) {
+                        next[square] = GREY;
+                        if (size == states.length) {
+                            states = Arrays.copyOf(states, size * 2);
+                            squares = Arrays.copyOf(squares, size * 2);
+                        }
+                        states[size] = target;
+                        squares[size++] = square;
+                    }
+                }
+            }
+        }
+
+        depth++;
+        pixels = next;
+        frontierStates = states;
+        frontierSquares = squares;
+        frontierSize = renderer.isDeterministic() ? size : removeDuplicates(size);
+        return image.getSubimage(0, 0, renderer.getImageWidth(nextSide),
+                renderer.getImageHeight(nextSide));
+    }
+
+    /**
+     * Decodes every level up to the given depth, handing each one to the
+     * listener as soon as it is complete
+     *
+     * @param lastDepth -> the deepest level to decode (capped at the maximum)
+     * @param listener  -> receives each level, and may stop the decode
+     * @return -> the image of the last level decoded, or null if none was
+     */
+    public BufferedImage render(int lastDepth, LevelListener listener) {
+        BufferedImage image = null;
+        while (hasNextLevel() && depth < lastDepth) {
+            image = nextLevel();
+            if (!listener.levelCompleted(depth, image)) {
+                break;
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Drops repeated (state, quadrant) pairs from the frontier, which only
+     * nondeterministic automata produce
+     *
+     * @param size -> the no. of pairs in the frontier
+     * @return -> the no. of distinct pairs, kept at the start of the arrays
+     */
+    private int removeDuplicates(int size) {
+        long[] pairs = new long[size];
+        for (int i = 0; i < size; i++) {
+            pairs[i] = ((long) frontierSquares[i] << 32) | frontierStates[i];
+        }
+        Arrays.sort(pairs);
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || pairs[i] != pairs[i - 1]) {
+                frontierSquares[n] = (int) (pairs[i] >>> 32);
+                frontierStates[n++] = (int) pairs[i];
+            }
+        }
+        return n;
+    }
+}
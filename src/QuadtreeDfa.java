@@ -0,0 +1,344 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The QuadtreeDfa class builds the minimal DFA of a quadtree in time linear in
+ * the size of the quadtree
+ * -> the quadtree is stored in a NodeTable, where equal subtrees already share
+ * one canonical node, so every canonical node is exactly one DFA state
+ * -> states are numbered breadth-first from the root in symbol order, which is
+ * the same numbering Compress.buildDFA has always produced, so the output of
+ * getTransitions matches the previous _cmp.txt files line for line
+ */
+public class QuadtreeDfa {
+    private final int numStates;
+    private final int[] next; // numStates * 4, -1 = no transition
+    private final boolean[] accept;
+
+    /**
+     * Constructs a new QuadtreeDfa from the given transition table
+     *
+     * @param numStates -> number of states
+     * @param next      -> transition table (next[state * 4 + symbol])
+     * @param accept    -> accept flags of the states
+     */
+    private QuadtreeDfa(int numStates, int[] next, boolean[] accept) {
+        this.numStates = numStates;
+        this.next = next;
+        this.accept = accept;
+    }
+
+    /**
+     * Builds the DFA of the quadtree rooted at the given node
+     * -> numbers the canonical nodes reachable from the root breadth-first
+     * -> if the root is EMPTY, the DFA has a single non-accepting state
+     *
+     * @param table -> the table holding the canonical nodes
+     * @param root  -> ID of the root node
+     * @return -> the minimal DFA accepting the words of the quadtree
+     */
+    public static QuadtreeDfa fromTree(NodeTable table, int root) {
+        if (root == NodeTable.EMPTY) {
+            return new QuadtreeDfa(1, new int[] {-1, -1, -1, -1}, new boolean[1]);
+        }
+
+        int[] stateOf = new int[table.size()];
+        Arrays.fill(stateOf, -1);
+        int[] nodeOf = new int[table.size()];
+        int n = 0;
+        stateOf[root] = n;
+        nodeOf[n++] = root;
+
+        int[] next = new int[table.size() * 4];
+        for (int i = 0; i < n; i++) {
+            int node = nodeOf[i];
+            for (int symbol = 0; symbol < 4; symbol++) {
+                int child = table.child(node, symbol);
+                if (child == NodeTable.EMPTY) {
+                    next[i * 4 + symbol] = -1;
+                    continue;
+                }
+                if (stateOf[child] == -1) {
+                    stateOf[child] = n;
+                    nodeOf[n++] = child;
+                }
+                next[i * 4 + symbol] = stateOf[child];
+            }
+        }
+
+        boolean[] accept = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            accept[i] = table.isAccepting(nodeOf[i]);
+        }
+        return new QuadtreeDfa(n, Arrays.copyOf(next, n * 4), accept);
+    }
+
+    /**
+     * Builds the minimal DFA accepting exactly the given words
+     * -> inserts the words into a trie, then hash-conses the trie bottom-up so
+     * that equal residual languages become one node
+     *
+     * @param words -> the list of words over the alphabet {0, 1, 2, 3}
+     * @return -> the minimal DFA accepting the words
+     */
+    public static QuadtreeDfa fromWords(List<String> words) {
+        int[] trie = new int[64 * 4];
+        boolean[] ends = new boolean[64];
+        Arrays.fill(trie, -1);
+        int trieSize = 1;
+
+        for (String word : words) {
+            int vertex = 0;
+            for (int i = 0; i < word.length(); i++) {
+                int symbol = word.charAt(i) - '0';
+                if (symbol < 0 || symbol > 3) {
+                    throw new IllegalArgumentException("Invalid symbol in word: " + word);
+                }
+                if (trie[vertex * 4 + symbol] == -1) {
+                    if (trieSize == ends.length) {
+                        trie = Arrays.copyOf(trie, trie.length * 2);
+                        Arrays.fill(trie, trieSize * 4, trie.length, -1);
+                        ends = Arrays.copyOf(ends, ends.length * 2);
+                    }
+                    trie[vertex * 4 + symbol] = trieSize++;
+                }
+                vertex = trie[vertex * 4 + symbol];
+            }
+            ends[vertex] = true;
+        }
+
+        NodeTable table = new NodeTable();
+        int root = words.isEmpty() ? NodeTable.EMPTY : intern(table, trie, ends, 0);
+        return fromTree(table, root);
+    }
+
+    /**
+     * Recursively hash-conses the trie below the given vertex
+     *
+     * @param table  -> table to add the canonical nodes to
+     * @param trie   -> trie children (trie[vertex * 4 + symbol])
+     * @param ends   -> whether a word ends at each vertex
+     * @param vertex -> the vertex to intern
+     * @return -> ID of the canonical node for the vertex
+     */
+    private static int intern(NodeTable table, int[] trie, boolean[] ends, int vertex) {
+        int c0 = internChild(table, trie, ends, vertex, 0);
+        int c1 = internChild(table, trie, ends, vertex, 1);
+        int c2 = internChild(table, trie, ends, vertex, 2);
+        int c3 = internChild(table, trie, ends, vertex, 3);
+        return table.intern(ends[vertex], c0, c1, c2, c3);
+    }
+
+    /**
+     * Hash-conses the child of the given trie vertex for the given symbol
+     *
+     * @return -> ID of the canonical node for the child, or EMPTY
+     */
+    private static int internChild(NodeTable table, int[] trie, boolean[] ends, int vertex,
+            int symbol) {
+        int child = trie[vertex * 4 + symbol];
+        return child == -1 ? NodeTable.EMPTY : intern(table, trie, ends, child);
+    }
+
+    /**
+     * Fetches and returns the number of states in the DFA
+     *
+     * @return -> the number of states
+     */
+    public int getNumStates() {
+        return numStates;
+    }
+
+    /**
+     * Returns the next state for the given state and input symbol
+     *
+     * @param state  -> ID of the state
+     * @param symbol -> input symbol {0, 1, 2, 3}
+     * @return -> ID of the next state, or -1 if there is no transition
+     */
+    public int getNext(int state, int symbol) {
+        return next[state * 4 + symbol];
+    }
+
+    /**
+     * Counts the transitions of the DFA
+     *
+     * @return -> the no. of transitions
+     */
+    public int getNumTransitions() {
+        int count = 0;
+        for (int target : next) {
+            if (target != -1) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether the given state is an accept state
+     *
+     * @param state -> ID of the state
+     * @return -> true if the state is an accept state, false otherwise
+     */
+    public boolean isAcceptState(int state) {
+        return accept[state];
+    }
+
+    /**
+     * Returns the lowest numbered accept state
+     *
+     * @return -> ID of the first accept state, or -1 if there is none
+     */
+    public int getFirstAcceptState() {
+        for (int i = 0; i < numStates; i++) {
+            if (accept[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Counts the words accepted from the given state (the number of black
+     * squares in the quadrant it describes)
+     *
+     * @param state -> ID of the state to count from
+     * @return -> the number of accepted words
+     */
+    public long countWords(int state) {
+        long[] memo = new long[numStates];
+        Arrays.fill(memo, -1);
+        return countWords(state, memo);
+    }
+
+    /**
+     * Recursively counts the words accepted from the given state
+     *
+     * @param state -> ID of the state to count from
+     * @param memo  -> counts of the states already visited (-1 = not visited)
+     * @return -> the number of accepted words
+     */
+    private long countWords(int state, long[] memo) {
+        if (memo[state] == -1) {
+            long count = accept[state] ? 1 : 0;
+            for (int symbol = 0; symbol < 4; symbol++) {
+                int to = next[state * 4 + symbol];
+                if (to != -1) {
+                    count += countWords(to, memo);
+                }
+            }
+            memo[state] = count;
+        }
+        return memo[state];
+    }
+
+    /**
+     * Converts this DFA to an Automaton object
+     *
+     * @return -> Automaton with the same states, transitions and accept states
+     */
+    public Automaton toAutomaton() {
+        Automaton automaton = new Automaton();
+        automaton.addState(numStates - 1);
+        for (int i = 0; i < numStates; i++) {
+            for (int symbol = 0; symbol < 4; symbol++) {
+                if (next[i * 4 + symbol] != -1) {
+                    automaton.addTransition(i, next[i * 4 + symbol], symbol);
+                }
+            }
+            if (accept[i]) {
+                automaton.addAcceptState(i);
+            }
+        }
+        return automaton;
+    }
+
+    /**
+     * Converts this DFA to a DenseAutomaton object
+     *
+     * @return -> DenseAutomaton with the same states, transitions and accept
+     *         states
+     */
+    public DenseAutomaton toDenseAutomaton() {
+        DenseAutomaton automaton = new DenseAutomaton();
+        automaton.addState(numStates - 1);
+        for (int i = 0; i < numStates; i++) {
+            for (int symbol = 0; symbol < 4; symbol++) {
+                if (next[i * 4 + symbol] != -1) {
+                    automaton.addTransition(i, next[i * 4 + symbol], symbol);
+                }
+            }
+            if (accept[i]) {
+                automaton.addAcceptState(i);
+            }
+        }
+        return automaton;
+    }
+
+    /**
+     * Fetches the list of all transitions in the DFA
+     * -> same format as Automaton.getTransitions
+     * -> Returns list in the form <origin state> <destination state> <symbol>
+     * -> Adds the number of states and a list of all accept states to the top of
+     * the list
+     *
+     * @param mode -> The value corresponding to the mode of multi-resolution
+     *             compression
+     * @return -> The list of all accept states and transitions between states
+     */
+    public List<String> getTransitions(int mode) {
+        List<String> str = new ArrayList<>();
+        str.add(numStates + "");
+
+        StringBuilder acceptLine = new StringBuilder();
+        for (int i = 0; i < numStates; i++) {
+            if (accept[i]) {
+                appendState(acceptLine, i);
+            }
+        }
+        // reduction -> multi-resolution
+        if (mode == 3) {
+            for (int i = 0; i < numStates; i++) {
+                appendState(acceptLine, i);
+            }
+        }
+        str.add(acceptLine.toString());
+
+        // checkerboard -> multi-res
+        if (mode == 2) {
+            str.add("0 0 0");
+            str.add("0 0 1");
+            str.add("0 0 2");
+            str.add("0 0 3");
+        }
+
+        for (int i = 0; i < numStates; i++) {
+            for (int symbol = 0; symbol < 4; symbol++) {
+                int to = next[i * 4 + symbol];
+                if (to != -1) {
+                    str.add(i + " " + to + " " + symbol);
+                }
+            }
+        }
+        return str;
+    }
+
+    /**
+     * Appends a state ID to a space separated list of states
+     *
+     * @param line  -> the list to append to
+     * @param state -> ID of the state
+     */
+    private static void appendState(StringBuilder line, int state) {
+        if (line.length() > 0) {
+            line.append(' ');
+        }
+        line.append(state);
+    }
+}
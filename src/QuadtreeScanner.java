@@ -0,0 +1,580 @@
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The QuadtreeScanner class finds the black squares of a black and white
+ * image without the per-node allocations of FindWordsToBlack
+ * -> the image is pulled into a summed-area table of black pixel counts in one
+ * pass, so "is this quadrant all black?" is answered in O(1)
+ * -> quadrants are described by their (x, y, width, height) instead of
+ * sub-images, and the current address is kept in a single reusable buffer
+ * -> quadrants without any black pixels are skipped immediately
+ * -> produces exactly the same word list as FindWordsToBlack.process for
+ * square images whose width is a power of two
+ * -> any other image is scanned as the top left corner of a square canvas
+ * whose width is the next power of two (see Compress.canvasSize): quadrants
+ * outside the image are virtual white squares, so the image is never copied
+ * into a padded canvas
+ * -> a scanner can also cover only a rectangle of the image, to rescan the
+ * quadrants inside it (see IncrementalCompressor)
+ * -> the table and the scan can also be split over a ForkJoinPool, where the
+ * top levels of the quadtree are forked into tasks and the results are merged
+ * in quadrant order, so the output is identical to the sequential scan
+ */
+public class QuadtreeScanner {
+    private static final int BLACK = 0xFF000000;
+    private static final int MAX_DEPTH = 32;
+    private static final int COLUMN_BLOCK = 1024;
+
+    private final int originX; // top left corner of the rectangle in the table
+    private final int originY;
+    private final int width;
+    private final int height;
+    private final int side; // width and height of the canvas scanned
+    private final int[] blackCount;
+    private long nodesVisited = 0;
+
+    /**
+     * Constructs a new scanner for the given image
+     * -> reads the image one row at a time and builds the summed-area table
+     * blackCount[(y * (width + 1)) + x] = no. of black pixels above and left of
+     * (x, y)
+     *
+     * @param image -> the image to scan
+     */
+    public QuadtreeScanner(BufferedImage image) {
+        this(image, Compress.canvasSize(image.getWidth(), image.getHeight()));
+    }
+
+    /**
+     * Constructs a new scanner for the given image, scanned as the top left
+     * corner of a canvas of the given size
+     * -> used for the tiles on the right and bottom edge of an image, which are
+     * smaller than the other tiles
+     *
+     * @param image -> the image to scan
+     * @param side  -> width and height of the canvas (a power of two, at least
+     *              the width and height of the image)
+     */
+    public QuadtreeScanner(BufferedImage image, int side) {
+        this(image, 0, 0, image.getWidth(), image.getHeight(), side);
+    }
+
+    /**
+     * Constructs a new scanner for a rectangle of the given image, scanned as
+     * part of a canvas of the given size
+     * -> only the pixels inside the rectangle are read, and only quadrants
+     * whose part inside the image lies within the rectangle can be scanned
+     *
+     * @param image  -> the image to scan
+     * @param left   -> x-coordinate of the top left corner of the rectangle
+     * @param top    -> y-coordinate of the top left corner of the rectangle
+     * @param width  -> width of the rectangle
+     * @param height -> height of the rectangle
+     * @param side   -> width and height of the canvas (a power of two, at least
+     *               the width and height of the image)
+     */
+    public QuadtreeScanner(BufferedImage image, int left, int top, int width, int height,
+            int side) {
+        this.originX = left;
+        this.originY = top;
+        this.width = width;
+        this.height = height;
+        this.side = side;
+        this.blackCount = new int[(width + 1) * (height + 1)];
+
+        int stride = width + 1;
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(left, top + y, width, 1, row, 0, width);
+            int rowSum = 0;
+            int above = y * stride;
+            int current = above + stride;
+            for (int x = 0; x < width; x++) {
+                if (row[x] == BLACK) {
+                    rowSum++;
+                }
+                blackCount[current + x + 1] = blackCount[above + x + 1] + rowSum;
+            }
+        }
+    }
+
+    /**
+     * Constructs a new scanner for one bit plane of an image held as one byte
+     * per pixel
+     * -> a pixel is black wherever the given bit of its byte is set, so the
+     * plane is never copied into an image of its own (see GrayscaleCompressor)
+     *
+     * @param samples -> one byte per pixel, row by row
+     * @param width   -> width of the image
+     * @param height  -> height of the image
+     * @param bit     -> the bit of each byte that is black in the plane
+     */
+    public QuadtreeScanner(byte[] samples, int width, int height, int bit) {
+        this.originX = 0;
+        this.originY = 0;
+        this.width = width;
+        this.height = height;
+        this.side = Compress.canvasSize(width, height);
+        this.blackCount = new int[(width + 1) * (height + 1)];
+
+        int stride = width + 1;
+        for (int y = 0; y < height; y++) {
+            int rowSum = 0;
+            int above = y * stride;
+            int current = above + stride;
+            int from = y * width;
+            for (int x = 0; x < width; x++) {
+                rowSum += samples[from + x] >> bit & 1;
+                blackCount[current + x + 1] = blackCount[above + x + 1] + rowSum;
+            }
+        }
+    }
+
+    /**
+     * Constructs a new scanner for the given image, building the summed-area
+     * table on the given pool
+     * -> first every row is read and summed left to right in parallel, then the
+     * row sums are accumulated top to bottom in parallel blocks of columns
+     *
+     * @param image -> the image to scan
+     * @param pool  -> the pool to build the table on
+     */
+    public QuadtreeScanner(BufferedImage image, ForkJoinPool pool) {
+        this.originX = 0;
+        this.originY = 0;
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.side = Compress.canvasSize(width, height);
+        this.blackCount = new int[(width + 1) * (height + 1)];
+
+        int stride = width + 1;
+        pool.submit(() -> IntStream.range(0, height).parallel().forEach(y -> {
+            int[] row = new int[width];
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int rowSum = 0;
+            int current = (y + 1) * stride;
+            for (int x = 0; x < width; x++) {
+                if (row[x] == BLACK) {
+                    rowSum++;
+                }
+                blackCount[current + x + 1] = rowSum;
+            }
+        })).join();
+
+        int blocks = (stride + COLUMN_BLOCK - 1) / COLUMN_BLOCK;
+        pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(block -> {
+            int from = block * COLUMN_BLOCK;
+            int to = Math.min(from + COLUMN_BLOCK, stride);
+            for (int y = 1; y < height; y++) {
+                int above = y * stride;
+                int current = above + stride;
+                for (int x = from; x < to; x++) {
+                    blackCount[current + x] += blackCount[above + x];
+                }
+            }
+        })).join();
+    }
+
+    /**
+     * Constructs a new scanner over the summed-area table of another one
+     * -> lets parallel tasks count their own visited nodes
+     *
+     * @param shared -> the scanner whose table to share
+     */
+    private QuadtreeScanner(QuadtreeScanner shared) {
+        this.originX = shared.originX;
+        this.originY = shared.originY;
+        this.width = shared.width;
+        this.height = shared.height;
+        this.side = shared.side;
+        this.blackCount = shared.blackCount;
+    }
+
+    /**
+     * Scans the image to find black squares and return the corresponding word
+     * list
+     *
+     * @param maxWordLen -> the maximum length of words to be included in the word
+     *                   list
+     * @return -> the list of words found during the scan
+     */
+    public List<String> process(int maxWordLen) {
+        List<String> wordList = new ArrayList<>();
+        findBlackSquares(wordList, new char[MAX_DEPTH], 0, 0, side, side, 0, maxWordLen);
+        return wordList;
+    }
+
+    /**
+     * Scans the image on the given pool to find black squares and return the
+     * corresponding word list
+     * -> quadrants above the cutoff depth are scanned as separate tasks
+     * -> the word list is identical to the one returned by process(maxWordLen)
+     *
+     * @param maxWordLen  -> the maximum length of words to be included in the
+     *                    word list
+     * @param pool        -> the pool to run the scan on
+     * @param cutoffDepth -> quadrants deeper than this are scanned sequentially
+     * @return -> the list of words found during the scan
+     */
+    public List<String> process(int maxWordLen, ForkJoinPool pool, int cutoffDepth) {
+        return pool.invoke(new WordTask(0, 0, side, side, new char[0], maxWordLen,
+                cutoffDepth));
+    }
+
+    /**
+     * Scans the image and builds its quadtree directly in the given NodeTable
+     * -> describes the same words as process, without building any strings
+     * -> equal quadrants share one canonical node
+     *
+     * @param table      -> the table to add the quadtree nodes to
+     * @param maxWordLen -> the maximum length of words described by the tree
+     * @return -> ID of the root node, or NodeTable.EMPTY if there are no words
+     */
+    public int buildTree(NodeTable table, int maxWordLen) {
+        return buildNode(table, 0, 0, side, side, maxWordLen);
+    }
+
+    /**
+     * Scans one quadrant of the canvas and builds its quadtree in the given
+     * NodeTable
+     * -> returns the node a scan of the whole canvas builds for the quadrant
+     *
+     * @param table      -> the table to add the quadtree nodes to
+     * @param x          -> x-coordinate of the top left corner of the quadrant
+     * @param y          -> y-coordinate of the top left corner of the quadrant
+     * @param size       -> width and height of the quadrant
+     * @param maxWordLen -> the maximum length of words described by the tree
+     * @return -> ID of the node, or NodeTable.EMPTY if there are no words
+     */
+    public int buildTree(NodeTable table, int x, int y, int size, int maxWordLen) {
+        return buildNode(table, x, y, size, size, maxWordLen);
+    }
+
+    /**
+     * Scans the image on the given pool and builds its quadtree in the given
+     * NodeTable
+     * -> quadrants above the cutoff depth are built as separate tasks, each in
+     * its own NodeTable, and copied into the given table in quadrant order
+     *
+     * @param table       -> the table to add the quadtree nodes to
+     * @param maxWordLen  -> the maximum length of words described by the tree
+     * @param pool        -> the pool to run the scan on
+     * @param cutoffDepth -> quadrants deeper than this are built sequentially
+     * @return -> ID of the root node, or NodeTable.EMPTY if there are no words
+     */
+    public int buildTree(NodeTable table, int maxWordLen, ForkJoinPool pool, int cutoffDepth) {
+        TreeTask task = new TreeTask(0, 0, side, side, 0, maxWordLen, cutoffDepth);
+        pool.invoke(task);
+        nodesVisited += task.countVisited();
+        return task.copyTo(table);
+    }
+
+    /**
+     * Fetches the no. of quadrants visited by buildTree so far
+     *
+     * @return -> the no. of quadrants visited
+     */
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    /**
+     * Recursively builds the canonical node of the given quadrant
+     * -> children are built before their parent (bottom-up), in the order
+     * | 1 3 |
+     * | 0 2 |
+     *
+     * @param table      -> the table to add the quadtree nodes to
+     * @param x          -> x-coordinate of the top left corner of the quadrant
+     * @param y          -> y-coordinate of the top left corner of the quadrant
+     * @param w          -> width of the quadrant
+     * @param h          -> height of the quadrant
+     * @param maxWordLen -> the remaining recursive depth
+     * @return -> ID of the node, or NodeTable.EMPTY if there are no words
+     */
+    private int buildNode(NodeTable table, int x, int y, int w, int h, int maxWordLen) {
+        nodesVisited++;
+        long black = countBlack(x, y, w, h);
+        if (black == (long) w * h) { // All black (or a single black pixel)
+            return table.black();
+        }
+
+        if (black == 0 || maxWordLen == 0 || (w == 1 && h == 1)) {
+            return NodeTable.EMPTY;
+        }
+
+        int halfW = w / 2;
+        int halfH = h / 2;
+        int c0 = buildNode(table, x, y + halfH, halfW, halfH, maxWordLen - 1);
+        int c1 = buildNode(table, x, y, halfW, halfH, maxWordLen - 1);
+        int c2 = buildNode(table, x + halfW, y + halfH, halfW, halfH, maxWordLen - 1);
+        int c3 = buildNode(table, x + halfW, y, halfW, halfH, maxWordLen - 1);
+        return table.node(c0, c1, c2, c3);
+    }
+
+    /**
+     * Recursively searches the given quadrant for black squares and adds the
+     * corresponding words to the word list
+     * -> quadrants are visited in the same order as FindWordsToBlack
+     * | 1 3 |
+     * | 0 2 |
+     *
+     * @param wordList   -> the list to add the words to
+     * @param path       -> the current word (first depth symbols)
+     * @param x          -> x-coordinate of the top left corner of the quadrant
+     * @param y          -> y-coordinate of the top left corner of the quadrant
+     * @param w          -> width of the quadrant
+     * @param h          -> height of the quadrant
+     * @param depth      -> length of the current word (in path)
+     * @param maxWordLen -> the remaining recursive depth
+     */
+    private void findBlackSquares(List<String> wordList, char[] path, int x, int y, int w,
+            int h, int depth, int maxWordLen) {
+        long black = countBlack(x, y, w, h);
+        if (black == (long) w * h) { // All black (or a single black pixel)
+            wordList.add(new String(path, 0, depth));
+            return;
+        }
+
+        if (black == 0 || maxWordLen == 0 || (w == 1 && h == 1)) {
+            return;
+        }
+
+        int halfW = w / 2;
+        int halfH = h / 2;
+        path[depth] = '0';
+        findBlackSquares(wordList, path, x, y + halfH, halfW, halfH, depth + 1, maxWordLen - 1);
+        path[depth] = '1';
+        findBlackSquares(wordList, path, x, y, halfW, halfH, depth + 1, maxWordLen - 1);
+        path[depth] = '2';
+        findBlackSquares(wordList, path, x + halfW, y + halfH, halfW, halfH, depth + 1,
+                maxWordLen - 1);
+        path[depth] = '3';
+        findBlackSquares(wordList, path, x + halfW, y, halfW, halfH, depth + 1, maxWordLen - 1);
+    }
+
+    /**
+     * Counts the black pixels in the given quadrant using the summed-area table
+     * -> the part of the quadrant outside the image (or the scanned
+     * rectangle) is white
+     * @param x -> x-coordinate of the top left corner of the quadrant
+     * @param y -> y-coordinate of the top left corner of the quadrant
+     * @param w -> width of the quadrant
+     * @param h -> height of the quadrant
+     * @return -> the number of black pixels in the quadrant
+     */
+    private long countBlack(int x, int y, int w, int h) {
+        int left = Math.min(Math.max(x - originX, 0), width);
+        int right = Math.min(Math.max(x + w - originX, 0), width);
+        int stride = width + 1;
+        int top = Math.min(Math.max(y - originY, 0), height) * stride;
+        int bottom = Math.min(Math.max(y + h - originY, 0), height) * stride;
+        return blackCount[bottom + right] - blackCount[bottom + left]
+                - blackCount[top + right] + blackCount[top + left];
+    }
+
+    /**
+     * Task that scans one quadrant for black squares
+     * -> above the cutoff depth the quadrant is split into four subtasks, and
+     * their word lists are joined in quadrant order
+     */
+    private class WordTask extends RecursiveTask<List<String>> {
+        private static final long serialVersionUID = 1L;
+
+        private final int x;
+        private final int y;
+        private final int w;
+        private final int h;
+        private final char[] prefix;
+        private final int maxWordLen;
+        private final int cutoffDepth;
+
+        /**
+         * Constructs a new task for the given quadrant
+         *
+         * @param x           -> x-coordinate of the top left corner of the quadrant
+         * @param y           -> y-coordinate of the top left corner of the quadrant
+         * @param w           -> width of the quadrant
+         * @param h           -> height of the quadrant
+         * @param prefix      -> the address of the quadrant
+         * @param maxWordLen  -> the remaining recursive depth
+         * @param cutoffDepth -> depth below which the scan is sequential
+         */
+        WordTask(int x, int y, int w, int h, char[] prefix, int maxWordLen, int cutoffDepth) {
+            this.x = x;
+            this.y = y;
+            this.w = w;
+            this.h = h;
+            this.prefix = prefix;
+            this.maxWordLen = maxWordLen;
+            this.cutoffDepth = cutoffDepth;
+        }
+
+        @Override
+        protected List<String> compute() {
+            int depth = prefix.length;
+            List<String> words = new ArrayList<>();
+            if (depth >= cutoffDepth) {
+                char[] path = new char[MAX_DEPTH];
+                System.arraycopy(prefix, 0, path, 0, depth);
+                findBlackSquares(words, path, x, y, w, h, depth, maxWordLen);
+                return words;
+            }
+
+            long black = countBlack(x, y, w, h);
+            if (black == (long) w * h) {
+                words.add(new String(prefix));
+                return words;
+            }
+            if (black == 0 || maxWordLen == 0 || (w == 1 && h == 1)) {
+                return words;
+            }
+
+            int halfW = w / 2;
+            int halfH = h / 2;
+            WordTask[] quadrants = {
+                    subtask('0', x, y + halfH, halfW, halfH),
+                    subtask('1', x, y, halfW, halfH),
+                    subtask('2', x + halfW, y + halfH, halfW, halfH),
+                    subtask('3', x + halfW, y, halfW, halfH)
+            };
+            invokeAll(quadrants);
+            for (WordTask quadrant : quadrants) {
+                words.addAll(quadrant.join());
+            }
+            return words;
+        }
+
+        /**
+         * Creates the task for one quadrant of this task's quadrant
+         *
+         * @return -> the new task
+         */
+        private WordTask subtask(char symbol, int x, int y, int w, int h) {
+            char[] address = new char[prefix.length + 1];
+            System.arraycopy(prefix, 0, address, 0, prefix.length);
+            address[prefix.length] = symbol;
+            return new WordTask(x, y, w, h, address, maxWordLen - 1, cutoffDepth);
+        }
+    }
+
+    /**
+     * Task that builds the quadtree of one quadrant
+     * -> at the cutoff depth the subtree is built sequentially in a NodeTable of
+     * its own, so tasks never share a table
+     * -> above the cutoff depth the quadrant is split into four subtasks
+     */
+    private class TreeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int x;
+        private final int y;
+        private final int w;
+        private final int h;
+        private final int depth;
+        private final int maxWordLen;
+        private final int cutoffDepth;
+
+        private NodeTable table;
+        private int root = NodeTable.EMPTY;
+        private TreeTask[] quadrants;
+        private long visited = 1;
+
+        /**
+         * Constructs a new task for the given quadrant
+         *
+         * @param x           -> x-coordinate of the top left corner of the quadrant
+         * @param y           -> y-coordinate of the top left corner of the quadrant
+         * @param w           -> width of the quadrant
+         * @param h           -> height of the quadrant
+         * @param depth       -> depth of the quadrant in the quadtree
+         * @param maxWordLen  -> the remaining recursive depth
+         * @param cutoffDepth -> depth below which the tree is built sequentially
+         */
+        TreeTask(int x, int y, int w, int h, int depth, int maxWordLen, int cutoffDepth) {
+            this.x = x;
+            this.y = y;
+            this.w = w;
+            this.h = h;
+            this.depth = depth;
+            this.maxWordLen = maxWordLen;
+            this.cutoffDepth = cutoffDepth;
+        }
+
+        @Override
+        protected void compute() {
+            if (depth >= cutoffDepth) {
+                QuadtreeScanner scanner = new QuadtreeScanner(QuadtreeScanner.this);
+                table = new NodeTable();
+                root = scanner.buildNode(table, x, y, w, h, maxWordLen);
+                visited = scanner.nodesVisited;
+                return;
+            }
+
+            long black = countBlack(x, y, w, h);
+            if (black == (long) w * h) {
+                table = new NodeTable();
+                root = table.black();
+                return;
+            }
+            if (black == 0 || maxWordLen == 0 || (w == 1 && h == 1)) {
+                return;
+            }
+
+            int halfW = w / 2;
+            int halfH = h / 2;
+            quadrants = new TreeTask[] {
+                    new TreeTask(x, y + halfH, halfW, halfH, depth + 1, maxWordLen - 1,
+                            cutoffDepth),
+                    new TreeTask(x, y, halfW, halfH, depth + 1, maxWordLen - 1, cutoffDepth),
+                    new TreeTask(x + halfW, y + halfH, halfW, halfH, depth + 1, maxWordLen - 1,
+                            cutoffDepth),
+                    new TreeTask(x + halfW, y, halfW, halfH, depth + 1, maxWordLen - 1,
+                            cutoffDepth)
+            };
+            invokeAll(quadrants);
+        }
+
+        /**
+         * Counts the quadrants visited by this task and its subtasks
+         *
+         * @return -> the no. of quadrants visited
+         */
+        long countVisited() {
+            long count = visited;
+            if (quadrants != null) {
+                for (TreeTask quadrant : quadrants) {
+                    count += quadrant.countVisited();
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Copies the finished subtree of this task into the given table
+         *
+         * @param shared -> the table to copy the subtree into
+         * @return -> ID of the subtree's root in the given table, or EMPTY
+         */
+        int copyTo(NodeTable shared) {
+            if (quadrants == null) {
+                return table == null ? NodeTable.EMPTY : shared.copy(table, root);
+            }
+            int c0 = quadrants[0].copyTo(shared);
+            int c1 = quadrants[1].copyTo(shared);
+            int c2 = quadrants[2].copyTo(shared);
+            int c3 = quadrants[3].copyTo(shared);
+            return shared.node(c0, c1, c2, c3);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The SequenceCompressor class compresses a sequence of black and white frames
+ * (e.g. consecutive pages or the frames of an animation) into one container,
+ * the "_cmp.seq" format
+ * -> every frame is scanned into one shared NodeTable, so a quadrant that
+ * appears in any earlier frame is stored once and reused as the same state
+ * -> a frame of the same size as the one before it is only rescanned inside
+ * the rectangle of pixels that changed (see IncrementalCompressor), so
+ * similar frames are compressed in time proportional to their differences
+ * -> every frame stores its root and the nodes it added to the table, so any
+ * frame can be decoded on its own from the nodes stored up to its root
+ * -> the automaton of a frame matches the _cmp.txt file of that frame line
+ * for line
+ * -> layout:
+ * magic "QTS" + version byte
+ * varint no. of frames
+ * for each frame: varint width and height, varint root + 1 (0 for a white
+ * frame), varint no. of nodes added by the frame, varint no. of bytes of
+ * those nodes
+ * the nodes added by each frame, in frame order and then in table order: a
+ * byte holding the accept flag (0x10) and one bit per non-EMPTY child
+ * (1 << symbol), then for each non-EMPTY child a varint of (node ID - child
+ * ID), as every child is added to the table before its parent
+ */
+public class SequenceCompressor {
+    public static final String EXTENSION = ".seq";
+
+    private static final byte[] MAGIC = {'Q', 'T', 'S'};
+    private static final byte VERSION = 1;
+    private static final int ACCEPT = 0x10;
+
+    private final NodeTable table = new NodeTable();
+    private final List<int[]> frames = new ArrayList<>(); // {width, height, root, table size}
+    private IncrementalCompressor current;
+    private BufferedImage previous;
+
+    /**
+     * Adds the next frame to the sequence
+     * -> a frame of the same size and colour model as the frame before it is
+     * updated from that frame instead of scanned whole
+     *
+     * @param image -> the frame
+     * @param stats -> the statistics to add the counters to
+     */
+    public void addFrame(BufferedImage image, CompressStats stats) {
+        int before = table.size();
+        Rectangle changed = previous == null ? null
+                : IncrementalCompressor.changedRegion(previous, image);
+        if (changed == null) {
+            current = new IncrementalCompressor(image, table);
+        } else {
+            current.update(image, changed);
+        }
+        previous = image;
+        frames.add(new int[] {image.getWidth(), image.getHeight(), current.getRoot(),
+                table.size()});
+
+        stats.set(CompressStats.Counter.PIXELS, (long) image.getWidth() * image.getHeight());
+        stats.set(CompressStats.Counter.NODES_VISITED, current.getNodesVisited());
+        stats.set(CompressStats.Counter.NODES, table.size() - before);
+    }
+
+    /**
+     * Fetches the no. of frames added so far
+     *
+     * @return -> the no. of frames
+     */
+    public int getNumFrames() {
+        return frames.size();
+    }
+
+    /**
+     * Fetches the no. of states shared by the frames
+     *
+     * @return -> the no. of canonical nodes in the table
+     */
+    public int getNumStates() {
+        return table.size();
+    }
+
+    /**
+     * Writes the container of every frame added so far
+     * -> the stream is not closed
+     *
+     * @param out -> the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(OutputStream out) throws IOException {
+        List<byte[]> sections = new ArrayList<>();
+        int from = 0;
+        for (int[] frame : frames) {
+            ByteArrayOutputStream nodes = new ByteArrayOutputStream();
+            for (int id = from; id < frame[3]; id++) {
+                writeNode(nodes, id);
+            }
+            sections.add(nodes.toByteArray());
+            from = frame[3];
+        }
+
+        out.write(MAGIC);
+        out.write(VERSION);
+        BinaryAutomatonFormat.writeVarint(out, frames.size());
+        from = 0;
+        for (int i = 0; i < frames.size(); i++) {
+            int[] frame = frames.get(i);
+            BinaryAutomatonFormat.writeVarint(out, frame[0]);
+            BinaryAutomatonFormat.writeVarint(out, frame[1]);
+            BinaryAutomatonFormat.writeVarint(out, frame[2] + 1);
+            BinaryAutomatonFormat.writeVarint(out, frame[3] - from);
+            BinaryAutomatonFormat.writeVarint(out, sections.get(i).length);
+            from = frame[3];
+        }
+        for (byte[] section : sections) {
+            out.write(section);
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes one node of the table
+     *
+     * @param out -> the stream to write to
+     * @param id  -> ID of the node
+     * @throws IOException if the stream cannot be written
+     */
+    private void writeNode(OutputStream out, int id) throws IOException {
+        int flags = table.isAccepting(id) ? ACCEPT : 0;
+        for (int symbol = 0; symbol < 4; symbol++) {
+            if (table.child(id, symbol) != NodeTable.EMPTY) {
+                flags |= 1 << symbol;
+            }
+        }
+        out.write(flags);
+        for (int symbol = 0; symbol < 4; symbol++) {
+            int child = table.child(id, symbol);
+            if (child != NodeTable.EMPTY) {
+                BinaryAutomatonFormat.writeVarint(out, id - child);
+            }
+        }
+    }
+
+    /**
+     * Reads the no. of frames of a container
+     *
+     * @param buffer -> buffer positioned at the start of the magic bytes (not
+     *               moved)
+     * @return -> the no. of frames
+     * @throws IllegalArgumentException if the buffer is not a valid container
+     */
+    public static int countFrames(ByteBuffer buffer) {
+        try {
+            return readHeader(buffer.duplicate());
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Decompress Error - Invalid automaton formatting");
+        }
+    }
+
+    /**
+     * Reads the automaton of one frame of a container
+     * -> only the nodes stored up to the root of the frame are read
+     *
+     * @param buffer -> buffer positioned at the start of the magic bytes (not
+     *               moved)
+     * @param frame  -> index of the frame, from 0
+     * @return -> the automaton of the frame, with its image size if the frame is
+     *         not a square whose width is a power of two
+     * @throws IllegalArgumentException if the frame does not exist or the
+     *                                  buffer is not a valid container
+     */
+    public static DenseAutomaton readFrame(ByteBuffer buffer, int frame) {
+        buffer = buffer.duplicate();
+        int width = 0;
+        int height = 0;
+        int root = NodeTable.EMPTY;
+        NodeTable table = new NodeTable();
+        try {
+            int count = readHeader(buffer);
+            if (frame < 0 || frame >= count) {
+                throw new IllegalArgumentException("Decompress Error - Invalid frame");
+            }
+
+            long nodes = 0; // nodes stored up to the frame
+            for (int i = 0; i < count; i++) {
+                int w = BinaryAutomatonFormat.readVarint(buffer);
+                int h = BinaryAutomatonFormat.readVarint(buffer);
+                int r = BinaryAutomatonFormat.readVarint(buffer) - 1;
+                nodes += BinaryAutomatonFormat.readVarint(buffer);
+                BinaryAutomatonFormat.readVarint(buffer); // no. of bytes
+                if (i == frame) {
+                    width = w;
+                    height = h;
+                    root = r;
+                    if (width < 1 || height < 1 || root < NodeTable.EMPTY || root >= nodes) {
+                        throw new IllegalArgumentException(
+                                "Decompress Error - Invalid automaton formatting");
+                    }
+                }
+            }
+
+            for (int id = 0; id <= root; id++) {
+                int flags = buffer.get() & 0xFF;
+                if (flags >= ACCEPT << 1) {
+                    throw new IllegalArgumentException(
+                            "Decompress Error - Invalid automaton formatting");
+                }
+                int[] children = {NodeTable.EMPTY, NodeTable.EMPTY, NodeTable.EMPTY,
+                        NodeTable.EMPTY};
+                for (int symbol = 0; symbol < 4; symbol++) {
+                    if ((flags & 1 << symbol) != 0) {
+                        int delta = BinaryAutomatonFormat.readVarint(buffer);
+                        if (delta < 1 || delta > id) {
+                            throw new IllegalArgumentException(
+                                    "Decompress Error - Invalid automaton formatting");
+                        }
+                        children[symbol] = id - delta;
+                    }
+                }
+                // nodes are stored once, so each one is new to the table
+                if (table.intern((flags & ACCEPT) != 0, children[0], children[1], children[2],
+                        children[3]) != id) {
+                    throw new IllegalArgumentException(
+                            "Decompress Error - Invalid automaton formatting");
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Decompress Error - Invalid automaton formatting");
+        }
+
+        DenseAutomaton automaton = QuadtreeDfa.fromTree(table, root).toDenseAutomaton();
+        if (Compress.needsImageSize(width, height)) {
+            automaton.setImageSize(width, height);
+        }
+        return automaton;
+    }
+
+    /**
+     * Checks whether the given file contents start with the magic bytes of a
+     * sequence container
+     *
+     * @param data -> the contents of a file
+     * @return -> true if the magic bytes match, false otherwise
+     */
+    public static boolean hasMagic(byte[] data) {
+        if (data.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the magic bytes, version and no. of frames of a container
+     *
+     * @param buffer -> buffer positioned at the start of the magic bytes
+     * @return -> the no. of frames
+     * @throws IllegalArgumentException if the header is not valid
+     */
+    private static int readHeader(ByteBuffer buffer) {
+        for (byte b : MAGIC) {
+            if (buffer.get() != b) {
+                throw new IllegalArgumentException(
+                        "Decompress Error - Invalid automaton formatting");
+            }
+        }
+        if (buffer.get() != VERSION) {
+            throw new IllegalArgumentException("Decompress Error - Invalid automaton formatting");
+        }
+        int count = BinaryAutomatonFormat.readVarint(buffer);
+        if (count < 0) {
+            throw new IllegalArgumentException("Decompress Error - Invalid automaton formatting");
+        }
+        return count;
+    }
+}
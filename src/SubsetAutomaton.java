@@ -0,0 +1,139 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The SubsetAutomaton class is the deterministic view of a nondeterministic
+ * automaton, built on the fly by the subset construction
+ * -> a state of this automaton is a set of states of the underlying one (the
+ * states active after reading a word), stored as a bitset
+ * -> every set gets an ID the first time it is reached, and a memo table maps
+ * each set back to its ID, so equal sets reached by different words share
+ * one state
+ * -> transitions are only computed when they are first followed, so only the
+ * sets that decoding actually reaches are ever built
+ * -> states that cannot reach an accept state are left out of every set, and
+ * a transition to the empty set is reported as missing
+ */
+public class SubsetAutomaton {
+    private static final int UNKNOWN = -2; // transition not computed yet
+    private static final int NONE = -1; // transition to the empty set
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final boolean[] accept;
+    private final boolean[] live;
+
+    private final Map<BitSet, Integer> ids = new HashMap<>();
+    private int[][] members = new int[16][]; // ID -> states of the set, ascending
+    private boolean[] accepting = new boolean[16];
+    private int[] next = new int[16 * 4];
+    private int size = 0;
+
+    private final long[] words; // scratch bitset for computing a transition
+
+    /**
+     * Constructs the deterministic view of the given automaton, holding only
+     * the start set {0}
+     *
+     * @param numStates -> no. of states of the automaton
+     * @param offsets   -> CSR offsets of the automaton's transitions
+     * @param targets   -> CSR targets of the automaton's transitions
+     * @param accept    -> accept flags of the states
+     * @param live      -> flags of the states that can reach an accept state
+     */
+    public SubsetAutomaton(int numStates, int[] offsets, int[] targets, boolean[] accept,
+            boolean[] live) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.accept = accept;
+        this.live = live;
+        this.words = new long[(numStates + 63) >> 6];
+
+        BitSet start = new BitSet();
+        start.set(0);
+        add(start);
+    }
+
+    /**
+     * Fetches the ID of the set reached from the given set with the given
+     * symbol, computing the set if it has not been followed before
+     *
+     * @param set    -> ID of the current set
+     * @param symbol -> the input symbol {0, 1, 2, 3}
+     * @return -> ID of the next set, or -1 if no live state is reached
+     */
+    public int next(int set, int symbol) {
+        int to = next[set * 4 + symbol];
+        if (to != UNKNOWN) {
+            return to;
+        }
+
+        boolean empty = true;
+        for (int state : members[set]) {
+            for (int i = offsets[state * 4 + symbol]; i < offsets[state * 4 + symbol + 1]; i++) {
+                int target = targets[i];
+                if (live[target]) {
+                    words[target >> 6] |= 1L << target;
+                    empty = false;
+                }
+            }
+        }
+        if (empty) {
+            to = NONE;
+        } else {
+            BitSet key = BitSet.valueOf(words);
+            Arrays.fill(words, 0);
+            Integer id = ids.get(key);
+            to = id != null ? id : add(key);
+        }
+        next[set * 4 + symbol] = to;
+        return to;
+    }
+
+    /**
+     * Checks whether the given set holds an accept state
+     *
+     * @param set -> ID of the set
+     * @return -> true if the set is accepting, false otherwise
+     */
+    public boolean isAccept(int set) {
+        return accepting[set];
+    }
+
+    /**
+     * Fetches the no. of sets built so far
+     *
+     * @return -> the no. of states of the deterministic view reached so far
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gives a new set the next ID
+     *
+     * @param key -> the states of the set
+     * @return -> ID of the set
+     */
+    private int add(BitSet key) {
+        if (size == members.length) {
+            members = Arrays.copyOf(members, size * 2);
+            accepting = Arrays.copyOf(accepting, size * 2);
+            next = Arrays.copyOf(next, size * 2 * 4);
+        }
+        int id = size++;
+        members[id] = key.stream().toArray();
+        for (int state : members[id]) {
+            accepting[id] |= accept[state];
+        }
+        Arrays.fill(next, id * 4, id * 4 + 4, UNKNOWN);
+        ids.put(key, id);
+        return id;
+    }
+}
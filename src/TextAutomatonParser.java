@@ -0,0 +1,454 @@
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * Byte-level parser for automata in the text (_cmp.txt) format
+ * -> line 1: no. of states, optionally followed by the width and height of
+ * the image, line 2: accept states, then one "si sf symbol" transition per
+ * line
+ * -> the file is read in chunks from a FileChannel and the integers are
+ * tokenised straight from the bytes, without building a String or a Scanner
+ * per line
+ * -> accepts exactly the files the Scanner-based parser accepted, with the
+ * same error for each bad file (including its quirks: an empty transition
+ * line is the transition "0 0 0", and extra numbers on a transition line
+ * only print a warning)
+ * -> files with non-ASCII bytes (e.g. Unicode digits or line separators) are
+ * left to the Scanner-based parser, which decodes them with the platform
+ * charset
+ */
+public class TextAutomatonParser {
+    private static final int CHUNK = 1 << 18;
+
+    /**
+     * Parses the given files and reports the parse throughput of each one
+     *
+     * @param args -> the _cmp.txt files to parse
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Input Error - Invalid number of arguments");
+            System.exit(0);
+        }
+
+        for (String file : args) {
+            try {
+                long start = System.nanoTime();
+                DenseAutomaton automaton = read(Paths.get(file));
+                long nanos = System.nanoTime() - start;
+                long bytes = new File(file).length();
+                System.out.println(String.format(Locale.ROOT,
+                        "Parsed %s: %d states, %d transitions, %.2f MB in %.1f ms (%.1f MB/s)",
+                        file, automaton.getNumStates(), automaton.getNumTransitions(),
+                        bytes / 1e6, nanos / 1e6, CompressStats.throughput(bytes, nanos)));
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.exit(0);
+            } catch (IOException e) {
+                System.err.println("Input Error - Invalid or missing file");
+                System.exit(0);
+            }
+        }
+    }
+
+    /**
+     * Reads an automaton from a text file
+     *
+     * @param path -> the file to read
+     * @return -> the automaton described by the file
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is badly formatted
+     */
+    public static DenseAutomaton read(Path path) throws IOException {
+        DenseAutomaton automaton;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            automaton = parse(channel);
+        }
+        return automaton != null ? automaton : readScanner(path);
+    }
+
+    /**
+     * Reads an automaton from the bytes of a text file held in memory
+     *
+     * @param data -> the contents of the file
+     * @return -> the automaton described by the file
+     * @throws IllegalArgumentException if the file is badly formatted
+     */
+    public static DenseAutomaton read(byte[] data) {
+        try {
+            for (byte b : data) {
+                if (b < 0) { // decoded like a file (see Scanner(File))
+                    return readScanner(new Scanner(Channels.newChannel(
+                            new ByteArrayInputStream(data))));
+                }
+            }
+            return parse(Channels.newChannel(new ByteArrayInputStream(data)));
+        } catch (IOException e) { // not thrown by an in-memory channel
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses an automaton from the bytes of the given channel
+     * -> a small state machine over the bytes: the current line, the current
+     * token and its value are carried over from one chunk to the next
+     *
+     * @param channel -> the channel to read
+     * @return -> the automaton, or null if a non-ASCII byte was found
+     * @throws IOException              if the channel cannot be read
+     * @throws IllegalArgumentException if the file is badly formatted
+     */
+    private static DenseAutomaton parse(ReadableByteChannel channel) throws IOException {
+        DenseAutomaton aut = new DenseAutomaton();
+        byte[] bytes = new byte[CHUNK];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        int line = 0; // index of the current line
+        boolean lineStarted = false; // the current line has a byte
+        boolean skipLf = false; // the last byte was '\r'
+        int header = 0; // numbers read on the header line
+        int numStates = 0;
+        int width = 0;
+        int height = 0;
+        int tokens = 0; // tokens read on the current transition line
+        int si = 0;
+        int sf = 0;
+        int symbol = 0;
+        int warnings = 0; // extra numbers on transition lines
+
+        boolean inToken = false;
+        boolean negative = false;
+        boolean bad = false; // the token is not an int
+        int digits = 0;
+        long value = 0;
+
+        try {
+            int n;
+            boolean eof = false;
+            while (!eof) {
+                buffer.clear();
+                n = channel.read(buffer);
+                eof = n < 0;
+                // a final line without a line break ends at the end of the file
+                int end = eof ? 1 : n;
+                for (int i = 0; i < end; i++) {
+                    int b;
+                    if (eof) {
+                        if (!lineStarted) {
+                            break;
+                        }
+                        b = '\n';
+                    } else {
+                        b = bytes[i];
+                        if (b < 0) {
+                            warnings = 0;
+                            return null;
+                        }
+                        if (skipLf) {
+                            skipLf = false;
+                            if (b == '\n') {
+                                continue;
+                            }
+                        }
+                    }
+
+                    boolean lineEnd = b == '\n' || b == '\r';
+                    boolean blank = !lineEnd && isBlank(b);
+                    if (!lineEnd) {
+                        lineStarted = true;
+                    }
+                    if (!lineEnd && !blank) {
+                        if (!inToken) {
+                            inToken = true;
+                            negative = false;
+                            bad = false;
+                            digits = 0;
+                            value = 0;
+                            if (b == '-' || b == '+') {
+                                negative = b == '-';
+                                continue;
+                            }
+                        }
+                        if (b >= '0' && b <= '9' && !bad) {
+                            value = value * 10 + (b - '0');
+                            digits++;
+                            bad = value > 1L << 31;
+                        } else {
+                            bad = true;
+                        }
+                        continue;
+                    }
+
+                    // end of a token
+                    if (inToken) {
+                        inToken = false;
+                        if (bad || digits == 0 || value > (negative ? 1L << 31 : (1L << 31) - 1)) {
+                            throw new IllegalArgumentException(
+                                    "Decompress Error - Invalid automaton formatting");
+                        }
+                        int next = (int) (negative ? -value : value);
+                        if (line == 0) {
+                            header++;
+                            if (header == 1) {
+                                numStates = next;
+                            } else if (header == 2) {
+                                width = next;
+                            } else {
+                                height = next;
+                            }
+                        } else if (line == 1) {
+                            if (next < 0 || next >= numStates) {
+                                throw new IllegalArgumentException(
+                                        "Decompress Error - Invalid accept state");
+                            }
+                            aut.addAcceptState(next);
+                        } else {
+                            tokens++;
+                            switch (tokens) {
+                                case 1:
+                                    si = next;
+                                    if (si < 0 || si > numStates - 1) {
+                                        throw new IllegalArgumentException(
+                                                "Decompress Error - Invalid transition");
+                                    }
+                                    break;
+                                case 2:
+                                    sf = next;
+                                    if (sf < 0 || sf > numStates - 1) {
+                                        throw new IllegalArgumentException(
+                                                "Decompress Error - Invalid transition");
+                                    }
+                                    break;
+                                case 3:
+                                    symbol = next;
+                                    if (symbol < 0 || symbol > 3) {
+                                        throw new IllegalArgumentException(
+                                                "Decompress Error - Invalid transition");
+                                    }
+                                    break;
+                                default:
+                                    warnings++;
+                            }
+                        }
+                    }
+                    if (!lineEnd) {
+                        continue;
+                    }
+
+                    // end of a line
+                    if (line == 0) {
+                        if (header == 3) {
+                            setImageSize(aut, width, height);
+                        } else if (header != 1) { // empty header line or a partial size
+                            throw new IllegalArgumentException(
+                                    "Decompress Error - Invalid automaton formatting");
+                        }
+                        if (numStates > 1) {
+                            aut.addState(numStates - 1);
+                        }
+                    } else if (line > 1) {
+                        aut.addTransition(si, sf, symbol);
+                        si = 0;
+                        sf = 0;
+                        symbol = 0;
+                        tokens = 0;
+                    }
+                    line++;
+                    lineStarted = false;
+                    skipLf = b == '\r';
+                }
+            }
+            if (line < 2) { // missing header lines
+                throw new IllegalArgumentException(
+                        "Decompress Error - Invalid automaton formatting");
+            }
+        } catch (RuntimeException e) {
+            // the Scanner decodes ahead of the line it parses, so a non-ASCII
+            // byte anywhere in the file can change the error it reports (bytes
+            // in memory are checked before they are parsed)
+            if (channel instanceof FileChannel && !isAscii((FileChannel) channel, bytes)) {
+                warnings = 0;
+                return null;
+            }
+            throw e;
+        } finally {
+            // printed once the parse is over, as a non-ASCII file is parsed again
+            for (int i = 0; i < warnings; i++) {
+                System.err.println("Decompress Error - Invalid automaton formatting");
+            }
+        }
+        return aut;
+    }
+
+    /**
+     * Checks whether every byte of the given channel is ASCII
+     *
+     * @param channel -> the channel, read again from the start
+     * @param bytes   -> a buffer to read into
+     * @return -> true if the channel has no non-ASCII bytes, false otherwise
+     * @throws IOException if the channel cannot be read
+     */
+    private static boolean isAscii(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        channel.position(0);
+        int n;
+        while ((n = channel.read(buffer.clear())) >= 0) {
+            for (int i = 0; i < n; i++) {
+                if (bytes[i] < 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the given ASCII byte separates numbers on a line (a Java
+     * whitespace character other than a line break)
+     *
+     * @param b -> the byte
+     * @return -> true if the byte is a blank, false otherwise
+     */
+    private static boolean isBlank(int b) {
+        return b == ' ' || b == '\t' || b == 0x0B || b == '\f' || (b >= 0x1C && b <= 0x1F);
+    }
+
+    /**
+     * Stores the image size read from the header line
+     *
+     * @param aut    -> the automaton being read
+     * @param width  -> width of the image
+     * @param height -> height of the image
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    private static void setImageSize(DenseAutomaton aut, int width, int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Decompress Error - Invalid image size");
+        }
+        aut.setImageSize(width, height);
+    }
+
+    /**
+     * Reads an automaton from a text file with a Scanner, one line at a time
+     * -> the original parser, kept for files with non-ASCII bytes
+     *
+     * @param path -> the file to read
+     * @return -> the automaton described by the file
+     * @throws IOException              if the file is missing
+     * @throws IllegalArgumentException if the file is badly formatted
+     */
+    private static DenseAutomaton readScanner(Path path) throws IOException {
+        return readScanner(new Scanner(path.toFile()));
+    }
+
+    /**
+     * Reads an automaton from the given Scanner, one line at a time
+     *
+     * @param sc -> the Scanner over the file, closed when done
+     * @return -> the automaton described by the file
+     * @throws IllegalArgumentException if the file is badly formatted
+     */
+    private static DenseAutomaton readScanner(Scanner sc) {
+        int numStates = 0;
+        DenseAutomaton aut = new DenseAutomaton();
+
+        try {
+            String line = sc.nextLine();
+            String[] header = line.trim().split("\\s+");
+            try {
+                numStates = Integer.parseInt(header[0]);
+                if (header.length == 3) {
+                    setImageSize(aut, Integer.parseInt(header[1]), Integer.parseInt(header[2]));
+                } else if (header.length != 1) {
+                    throw new NumberFormatException();
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Decompress Error - Invalid automaton formatting");
+            }
+            for (int i = 1; i < numStates; i++) {
+                aut.addState(i);
+            }
+
+            line = sc.nextLine();
+            Scanner scLine = new Scanner(line);
+            while (scLine.hasNext()) {
+                String num = scLine.next();
+                try {
+                    int state = Integer.parseInt(num);
+                    if (state >= 0 && state < numStates) {
+                        aut.addAcceptState(state);
+                    } else {
+                        throw new IllegalArgumentException("Decompress Error - Invalid accept state");
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Decompress Error - Invalid automaton formatting");
+                }
+            }
+            scLine.close();
+            while (sc.hasNextLine()) {
+                int si, sf, next, symbol, lineCount;
+
+                si = 0;
+                sf = 0;
+                next = 0;
+                symbol = 0;
+
+                lineCount = 0;
+                line = sc.nextLine();
+                scLine = new Scanner(line);
+                while (scLine.hasNext()) {
+                    try {
+                        next = Integer.parseInt(scLine.next());
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Decompress Error - Invalid automaton formatting");
+                    }
+                    lineCount++;
+                    switch (lineCount) {
+                        case 1:
+                            si = next;
+                            if (si < 0 || si > numStates - 1) {
+                                throw new IllegalArgumentException("Decompress Error - Invalid transition");
+                            }
+                            break;
+                        case 2:
+                            sf = next;
+                            if (sf < 0 || sf > numStates - 1) {
+                                throw new IllegalArgumentException("Decompress Error - Invalid transition");
+                            }
+                            break;
+                        case 3:
+                            symbol = next;
+                            if (symbol < 0 || symbol > 3) {
+                                throw new IllegalArgumentException("Decompress Error - Invalid transition");
+                            }
+                            break;
+                        default:
+                            System.err.println("Decompress Error - Invalid automaton formatting");
+                    }
+                }
+                aut.addTransition(si, sf, symbol);
+                scLine.close();
+            }
+            sc.close();
+        } catch (NoSuchElementException e) { // missing header lines
+            throw new IllegalArgumentException("Decompress Error - Invalid automaton formatting");
+        }
+        return aut;
+    }
+}
@@ -0,0 +1,101 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The TileCache class remembers where the tile of each (state, depth) pair was
+ * first rendered, so that every later occurrence of the same tile can be
+ * copied instead of rendered again
+ * -> a tile is the 2^depth x 2^depth square drawn from one state of a
+ * deterministic automaton, so it only depends on the state and the depth
+ * -> an entry holds the position of the tile in the raster and its no. of
+ * black pixels, not the pixels themselves
+ * -> the cache is bounded by an estimate of its memory use, and evicts the
+ * least recently used entry when it is full
+ */
+public class TileCache {
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    // estimated heap use of one entry: map entry, boxed key and int[3]
+    private static final int ENTRY_BYTES = 128;
+
+    private final LinkedHashMap<Long, int[]> tiles;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Constructs a new, empty cache
+     *
+     * @param maxBytes -> the memory bound of the cache in bytes
+     */
+    public TileCache(long maxBytes) {
+        long maxEntries = Math.max(1, maxBytes / ENTRY_BYTES);
+        this.tiles = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Looks up the tile of the given state and depth
+     *
+     * @param state -> ID of the state the tile is drawn from
+     * @param depth -> log2 of the width of the tile
+     * @return -> {x, y, no. of black pixels} of the tile in the raster, or null
+     *         if the tile has not been rendered (or was evicted)
+     */
+    public int[] get(int state, int depth) {
+        int[] tile = tiles.get(key(state, depth));
+        if (tile == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return tile;
+    }
+
+    /**
+     * Records where the tile of the given state and depth was rendered
+     *
+     * @param state -> ID of the state the tile is drawn from
+     * @param depth -> log2 of the width of the tile
+     * @param x     -> x-coordinate of the top left corner of the tile
+     * @param y     -> y-coordinate of the top left corner of the tile
+     * @param black -> no. of black pixels in the tile
+     */
+    public void put(int state, int depth, int x, int y, int black) {
+        tiles.put(key(state, depth), new int[] {x, y, black});
+    }
+
+    /**
+     * Fetches the no. of lookups that found their tile
+     *
+     * @return -> the no. of cache hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Fetches the no. of lookups that did not find their tile
+     *
+     * @return -> the no. of cache misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Packs a state and depth into one key
+     */
+    private static long key(int state, int depth) {
+        return ((long) state << 6) | depth;
+    }
+}
@@ -0,0 +1,153 @@
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The TiledCompressor class builds the quadtree of an image without ever
+ * holding the whole image in memory
+ * -> the image is read one row of tiles at a time through ImageReader source
+ * regions, so at most tileSize rows of the image are decoded into memory
+ * -> every tile is a quadrant of the image (tiles are quadtree aligned), so
+ * each one is scanned into its own subtree of a shared NodeTable
+ * -> the tile subtrees are then merged bottom-up into the tree of the whole
+ * image, which is exactly the tree a full in-memory scan produces
+ */
+public class TiledCompressor {
+
+    /**
+     * Builds the quadtree of the given image file, one row of tiles at a time
+     *
+     * @param file     -> the image file to compress
+     * @param table    -> the table to add the quadtree nodes to
+     * @param tileSize -> width and height of a tile in pixels (a power of two)
+     * @return -> ID of the root node, or NodeTable.EMPTY if the image is white
+     * @throws IOException if the image cannot be read
+     */
+    public static int buildTree(File file, NodeTable table, int tileSize) throws IOException {
+        return buildTree(file, table, tileSize, new CompressStats("compress", file.getPath()),
+                new int[2]);
+    }
+
+    /**
+     * Builds the quadtree of the given image file, one row of tiles at a time,
+     * counting the pixels read and quadrants visited
+     * -> an image that is not a square whose width is a power of two is
+     * compressed as the corner of a white canvas (see Compress.canvasSize):
+     * tiles on the right and bottom edge are cut off at the image, and tiles
+     * outside the image are white without being read
+     *
+     * @param file     -> the image file to compress
+     * @param table    -> the table to add the quadtree nodes to
+     * @param tileSize -> width and height of a tile in pixels (a power of two)
+     * @param stats    -> the statistics to add the counters to
+     * @param size     -> filled with the {width, height} of the image
+     * @return -> ID of the root node, or NodeTable.EMPTY if the image is white
+     * @throws IOException if the image cannot be read
+     */
+    public static int buildTree(File file, NodeTable table, int tileSize, CompressStats stats,
+            int[] size) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            if (in == null) {
+                throw new IOException("Cannot open " + file);
+            }
+            return buildTree(in, table, tileSize, stats, size);
+        }
+    }
+
+    /**
+     * Builds the quadtree of the image read from the given stream, one row of
+     * tiles at a time (see buildTree(File, ...))
+     * -> the stream is not closed
+     *
+     * @param in       -> the stream holding the encoded image
+     * @param table    -> the table to add the quadtree nodes to
+     * @param tileSize -> width and height of a tile in pixels (a power of two)
+     * @param stats    -> the statistics to add the counters to
+     * @param size     -> filled with the {width, height} of the image
+     * @return -> ID of the root node, or NodeTable.EMPTY if the image is white
+     * @throws IOException if the image cannot be read
+     */
+    public static int buildTree(ImageInputStream in, NodeTable table, int tileSize,
+            CompressStats stats, int[] size) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+            throw new IOException("No image reader");
+        }
+
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(in, false, true);
+            size[0] = reader.getWidth(0);
+            size[1] = reader.getHeight(0);
+            stats.add(CompressStats.Counter.PIXELS, (long) size[0] * size[1]);
+
+            int canvas = Compress.canvasSize(size[0], size[1]);
+            return buildTree(reader, table, size[0], size[1], canvas,
+                    Math.min(tileSize, canvas), stats);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Scans every tile of the image and merges the tile subtrees
+     *
+     * @param reader -> reader positioned on the image
+     * @param table  -> the table to add the quadtree nodes to
+     * @param width  -> width of the image
+     * @param height -> height of the image
+     * @param canvas -> width and height of the canvas (a power of two)
+     * @param tile   -> width and height of a tile (a power of two)
+     * @param stats  -> the statistics to add the visited quadrants to
+     * @return -> ID of the root node, or NodeTable.EMPTY if the image is white
+     * @throws IOException if the image cannot be read
+     */
+    private static int buildTree(ImageReader reader, NodeTable table, int width, int height,
+            int canvas, int tile, CompressStats stats) throws IOException {
+        int tiles = canvas / tile;
+        int depth = Compress.maxWordLength(tile);
+        int[] roots = new int[tiles * tiles];
+        Arrays.fill(roots, NodeTable.EMPTY);
+
+        ImageReadParam param = reader.getDefaultReadParam();
+        for (int row = 0; row < tiles && row * tile < height; row++) {
+            int bandHeight = Math.min(tile, height - row * tile);
+            param.setSourceRegion(new Rectangle(0, row * tile, width, bandHeight));
+            BufferedImage band = reader.read(0, param);
+            for (int col = 0; col < tiles && col * tile < width; col++) {
+                QuadtreeScanner scanner = new QuadtreeScanner(band.getSubimage(col * tile, 0,
+                        Math.min(tile, width - col * tile), bandHeight), tile);
+                roots[row * tiles + col] = scanner.buildTree(table, depth);
+                stats.add(CompressStats.Counter.NODES_VISITED, scanner.getNodesVisited());
+            }
+        }
+        // merge each 2x2 block of quadrants into its parent, until one is left
+        // | 1 3 |
+        // | 0 2 |
+        for (int n = tiles; n > 1; n /= 2) {
+            int half = n / 2;
+            int[] parents = new int[half * half];
+            for (int y = 0; y < half; y++) {
+                for (int x = 0; x < half; x++) {
+                    int top = (2 * y) * n + 2 * x;
+                    int bottom = top + n;
+                    parents[y * half + x] = table.merge(roots[bottom], roots[top],
+                            roots[bottom + 1], roots[top + 1]);
+                }
+            }
+            roots = parents;
+        }
+        return roots[0];
+    }
+}
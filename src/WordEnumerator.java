@@ -0,0 +1,263 @@
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * @author 25526693 | CJ TELFER
+ */
+
+/**
+ * The WordEnumerator class lists the words accepted by an automaton one at a
+ * time, without building the whole word list
+ * -> words are packed into a long: a marker bit followed by two bits per
+ * symbol, first symbol highest, so words of up to MAX_LENGTH symbols fit and
+ * the empty word is 1
+ * -> the automaton is searched depth-first with an explicit stack, in the
+ * same order as DenseAutomaton.findWords, so memory use only depends on the
+ * length of the words
+ * -> states that cannot reach an accept state are never entered
+ * -> without a word length or maximum length, a cyclic automaton accepts
+ * infinitely many words, which is detected before the first word is listed
+ * (and a word longer than MAX_LENGTH fails when it is reached)
+ */
+public class WordEnumerator implements PrimitiveIterator.OfLong {
+    public static final int MAX_LENGTH = 31;
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final boolean[] accept;
+    private final boolean[] live;
+    private final int wordLen; // > 0: list only words of exactly this length
+    private final int maxLength; // deepest level searched
+    private final boolean bounded; // a word length or maximum length was given
+
+    private final int[] states = new int[MAX_LENGTH + 1]; // the stack
+    private final int[] cursor = new int[MAX_LENGTH + 1]; // next transition of each state
+    private final int[] symbol = new int[MAX_LENGTH + 1]; // symbol of that transition
+    private int depth = 0;
+    private boolean entered = false; // the state on top of the stack has been checked
+    private long word = 1;
+
+    private long next;
+    private boolean ready = false;
+
+    /**
+     * Constructs an enumerator of the words of the given automaton
+     * -> lists the same words as DenseAutomaton.findWords(wordLen)
+     *
+     * @param automaton -> the automaton
+     * @param wordLen   -> the multi-resolution word length, <= 0 for none
+     * @throws IllegalArgumentException if wordLen is above MAX_LENGTH
+     * @throws IllegalStateException    if wordLen <= 0 and the automaton accepts
+     *                                  infinitely many words
+     */
+    public WordEnumerator(DenseAutomaton automaton, int wordLen) {
+        this(automaton, wordLen, 0);
+    }
+
+    /**
+     * Constructs an enumerator of the words of the given automaton, up to a
+     * maximum length
+     * -> with a maximum length, cyclic automata are allowed and their words are
+     * cut off at that length
+     *
+     * @param automaton -> the automaton
+     * @param wordLen   -> the multi-resolution word length, <= 0 for none
+     * @param maxLength -> the maximum length of a word, <= 0 for none
+     * @throws IllegalArgumentException if a length is above MAX_LENGTH
+     * @throws IllegalStateException    if both lengths are <= 0 and the automaton
+     *                                  accepts infinitely many words
+     */
+    public WordEnumerator(DenseAutomaton automaton, int wordLen, int maxLength) {
+        if (wordLen > MAX_LENGTH || maxLength > MAX_LENGTH) {
+            throw new IllegalArgumentException("Decompress Error - Invalid word length");
+        }
+        int numStates = automaton.getNumStates();
+        this.offsets = automaton.offsets();
+        this.targets = automaton.targets();
+        this.accept = new boolean[numStates];
+        for (int state = 0; state < numStates; state++) {
+            accept[state] = automaton.isAcceptState(state);
+        }
+        this.live = automaton.findLiveStates();
+        this.wordLen = wordLen;
+        this.bounded = wordLen > 0 || maxLength > 0;
+        if (wordLen > 0) {
+            this.maxLength = maxLength > 0 ? Math.min(wordLen, maxLength) : wordLen;
+        } else if (maxLength > 0) {
+            this.maxLength = maxLength;
+        } else {
+            checkAcyclic(numStates);
+            this.maxLength = MAX_LENGTH;
+        }
+
+        states[0] = 0;
+        cursor[0] = offsets[0];
+        symbol[0] = 0;
+        if (!live[0]) {
+            depth = -1;
+        }
+    }
+
+    /**
+     * Streams the words of the given automaton
+     *
+     * @param automaton -> the automaton
+     * @param wordLen   -> the multi-resolution word length, <= 0 for none
+     * @param maxLength -> the maximum length of a word, <= 0 for none
+     * @return -> a sequential stream of packed words, generated as it is read
+     */
+    public static LongStream stream(DenseAutomaton automaton, int wordLen, int maxLength) {
+        WordEnumerator words = new WordEnumerator(automaton, wordLen, maxLength);
+        return StreamSupport.longStream(Spliterators.spliteratorUnknownSize(words,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!ready) {
+            ready = advance();
+        }
+        return ready;
+    }
+
+    @Override
+    public long nextLong() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        return next;
+    }
+
+    /**
+     * Fetches the no. of symbols of a packed word
+     *
+     * @param word -> the packed word
+     * @return -> the length of the word
+     */
+    public static int length(long word) {
+        return (63 - Long.numberOfLeadingZeros(word)) / 2;
+    }
+
+    /**
+     * Fetches one symbol of a packed word
+     *
+     * @param word  -> the packed word
+     * @param index -> position of the symbol, 0 for the first
+     * @return -> the symbol {0, 1, 2, 3}
+     */
+    public static int symbol(long word, int index) {
+        return (int) (word >>> 2 * (length(word) - 1 - index)) & 3;
+    }
+
+    /**
+     * Converts a packed word to its digits
+     *
+     * @param word -> the packed word
+     * @return -> the word as a string of symbols, e.g. "0312"
+     */
+    public static String toString(long word) {
+        int length = length(word);
+        char[] digits = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + (word & 3));
+            word >>>= 2;
+        }
+        return new String(digits);
+    }
+
+    /**
+     * Moves the search to the next accepted word
+     *
+     * @return -> true if a word was found (stored in next), false if the search
+     *         is done
+     */
+    private boolean advance() {
+        while (depth >= 0) {
+            int state = states[depth];
+            boolean leaf = depth == maxLength;
+            if (!entered) {
+                entered = true;
+                if (accept[state] && (wordLen <= 0 || depth == wordLen)) {
+                    next = word;
+                    return true;
+                }
+            }
+
+            int end = offsets[state * 4 + 4];
+            int i = cursor[depth];
+            if (leaf && !bounded) {
+                for (int j = i; j < end; j++) {
+                    if (live[targets[j]]) {
+                        throw new IllegalStateException("Decompress Error - Invalid word length");
+                    }
+                }
+            }
+            if (leaf || i == end) {
+                depth--;
+                word >>>= 2;
+                continue;
+            }
+            cursor[depth] = i + 1;
+            int target = targets[i];
+            if (!live[target]) {
+                continue;
+            }
+            while (i >= offsets[state * 4 + symbol[depth] + 1]) {
+                symbol[depth]++;
+            }
+
+            word = word << 2 | symbol[depth];
+            depth++;
+            states[depth] = target;
+            cursor[depth] = offsets[target * 4];
+            symbol[depth] = 0;
+            entered = false;
+        }
+        return false;
+    }
+
+    /**
+     * Checks that no cycle of live states can be reached from the start state
+     * -> iterative depth-first search, where reaching a state that is still on
+     * the search path closes a cycle
+     *
+     * @param numStates -> no. of states of the automaton
+     * @throws IllegalStateException if such a cycle exists
+     */
+    private void checkAcyclic(int numStates) {
+        if (!live[0]) {
+            return;
+        }
+        byte[] colour = new byte[numStates]; // 0 = new, 1 = on the path, 2 = done
+        int[] path = new int[numStates];
+        int[] next = new int[numStates];
+        int top = 0;
+        path[0] = 0;
+        next[0] = offsets[0];
+        colour[0] = 1;
+        while (top >= 0) {
+            int state = path[top];
+            if (next[top] == offsets[state * 4 + 4]) {
+                colour[state] = 2;
+                top--;
+                continue;
+            }
+            int target = targets[next[top]++];
+            if (!live[target] || colour[target] == 2) {
+                continue;
+            }
+            if (colour[target] == 1) {
+                throw new IllegalStateException(
+                        "Decompress Error - Cyclic automaton requires a word length");
+            }
+            colour[target] = 1;
+            path[++top] = target;
+            next[top] = offsets[target * 4];
+        }
+    }
+}